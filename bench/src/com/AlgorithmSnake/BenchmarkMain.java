@@ -0,0 +1,19 @@
+package com.AlgorithmSnake;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// runs the benchmarks with the gc profiler attached so allocation rates show up next to the timings.
+// pass a regex to pick benchmarks, e.g. "PathfinderBenchmark" or "TickBenchmark", default runs all of them.
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com\\.AlgorithmSnake\\..*Benchmark";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
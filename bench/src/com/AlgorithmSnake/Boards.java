@@ -0,0 +1,112 @@
+package com.AlgorithmSnake;
+import java.util.Random;
+
+// board scenarios shared by the benchmarks, laid out relative to the board size so the same
+// scenario can be measured on a 100x100 board and on a huge one. all of them are fully
+// deterministic so runs can be compared against each other
+final class Boards {
+    enum Kind {
+        EMPTY,       // a lone snake and the eatable in the far corner
+        DENSE,       // late game, long snakes packed in two row bands with one row corridors between
+        MAZE,        // serpentine walls, the only way to the eatable visits every column
+        UNREACHABLE  // eatable walled in, the search has to exhaust the board
+    }
+
+    static final long SEED = 42;
+
+    private Boards() {
+    }
+
+    // the searching snake is always the first one in engine.snakes
+    static GameEngine build(Kind kind) {
+        return build(kind, GameEngine.DEFAULT_SIZE);
+    }
+
+    static GameEngine build(Kind kind, int size) {
+        GameEngine engine = new GameEngine(SEED, size, size);
+        int maxPos = engine.maxX;
+        switch (kind) {
+            case EMPTY:
+                engine.addSnake(size / 10, size / 10, PathAlgorithm.ASTAR, true);
+                engine.placeEatable(engine.occupancy.cell(size - size / 10, size - size / 10));
+                break;
+            case DENSE:
+                for (int y = 1; y + 1 <= maxPos; y += 3) {
+                    Snake snake = engine.addSnake(4, y, PathAlgorithm.ASTAR, true);
+                    crawl(snake, 1, maxPos - 5);
+                    crawl(snake, engine.occupancy.stride, 1);
+                    crawl(snake, -1, maxPos - 3);
+                }
+                engine.placeEatable(engine.occupancy.cell(maxPos - 1, maxPos - 2));
+                break;
+            case MAZE:
+                engine.addSnake(3, size / 2, PathAlgorithm.ASTAR, true);
+                Occupancy occupancy = engine.occupancy;
+                for (int x = 4; x < maxPos; x += 4) {
+                    int gap = (x / 4) % 2 == 0 ? GameEngine.MIN_POS : maxPos;
+                    for (int y = GameEngine.MIN_POS; y <= maxPos; y++) {
+                        if (y != gap) {
+                            occupancy.set(occupancy.cell(x, y), Occupancy.WALL);
+                        }
+                    }
+                }
+                engine.placeEatable(engine.occupancy.cell(maxPos - 1, size / 2));
+                break;
+            case UNREACHABLE:
+                engine.addSnake(size / 10, size / 10, PathAlgorithm.ASTAR, true);
+                int c = size * 8 / 10;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        if (dx != 0 || dy != 0) {
+                            engine.occupancy.set(engine.occupancy.cell(c + dx, c + dy), Occupancy.WALL);
+                        }
+                    }
+                }
+                engine.placeEatable(engine.occupancy.cell(c, c));
+                break;
+        }
+        return engine;
+    }
+
+    // engine with n ai snakes on a lattice, algorithms taken in turn, and a seeded eatable
+    static GameEngine arena(int n) {
+        return arena(n, 1);
+    }
+
+    static GameEngine arena(int n, int food) {
+        GameEngine engine = new GameEngine(SEED);
+        engine.foodCount = food;
+        PathAlgorithm[] algorithms = PathAlgorithm.values();
+        int columns = (int) Math.ceil(Math.sqrt(n));
+        int spacing = (engine.maxX - 4) / columns;
+        for (int i = 0; i < n; i++) {
+            engine.addSnake(4 + (i % columns) * spacing, 4 + (i / columns) * spacing, algorithms[i % algorithms.length], true);
+        }
+        engine.spawnFood();
+        return engine;
+    }
+
+    // occupancy with the given share of the playable cells taken, for spawn benchmarks
+    static Occupancy crowded(double fill, long seed) {
+        int size = GameEngine.DEFAULT_SIZE;
+        Occupancy occupancy = new Occupancy(size, size);
+        Random random = new Random(seed);
+        for (int y = GameEngine.MIN_POS; y <= size - 2; y++) {
+            for (int x = GameEngine.MIN_POS; x <= size - 2; x++) {
+                if (random.nextDouble() < fill) {
+                    occupancy.set(occupancy.cell(x, y), 1);
+                }
+            }
+        }
+        return occupancy;
+    }
+
+    // moves the snake steps cells along a cell offset, growing by one cell per step
+    private static void crawl(Snake snake, int direction, int steps) {
+        snake.direction = direction;
+        for (int i = 0; i < steps; i++) {
+            snake.grow();
+            snake.move();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.AlgorithmSnake;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// reachable area of the first snake, filled word parallel on the bitset against an exhaustive
+// queue bfs that reaches the same cells
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloodFillBenchmark {
+    @Param({"EMPTY", "DENSE", "MAZE", "UNREACHABLE"})
+    public String board;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private Pathfinder pathfinder;
+    private Snake snake;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GameEngine engine = Boards.build(Boards.Kind.valueOf(board), size);
+        pathfinder = new Pathfinder(engine.occupancy);
+        snake = engine.snakes.get(0);
+    }
+
+    @Benchmark
+    public int bitboard() {
+        return pathfinder.reachableArea(snake);
+    }
+
+    @Benchmark
+    public int queue() {
+        pathfinder.bfs(snake, -1, true);
+        return pathfinder.expansions;
+    }
+}
@@ -0,0 +1,55 @@
+package com.AlgorithmSnake;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// what a lookahead snake pays per tick on an arena of n snakes: building the state from the
+// engine, forking it for another thread, resetting a fork after a playout, and a whole plan
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookaheadBenchmark {
+    @Param({"4", "48"})
+    public int snakes;
+
+    @Param({"64", "512"})
+    public int rollouts;
+
+    private GameEngine engine;
+    private Snake snake;
+    private GameState state;
+    private final Lookahead lookahead = new Lookahead();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = Boards.arena(snakes);
+        engine.lookaheadRollouts = rollouts;
+        snake = engine.snakes.get(0);
+        state = new GameState(engine, snake, Lookahead.DEPTH, Lookahead.RADIUS);
+    }
+
+    @Benchmark
+    public GameState build() {
+        return new GameState(engine, snake, Lookahead.DEPTH, Lookahead.RADIUS);
+    }
+
+    @Benchmark
+    public GameState fork() {
+        return state.fork();
+    }
+
+    @Benchmark
+    public int reset() {
+        state.move(state.self, state.headOf(state.self) + state.direction(state.self));
+        state.reset();
+        return state.length(state.self);
+    }
+
+    @Benchmark
+    public int plan() {
+        lookahead.plan(engine, snake, Long.MAX_VALUE);
+        return lookahead.path[0];
+    }
+}
@@ -0,0 +1,60 @@
+package com.AlgorithmSnake;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// one search from the first snake to the eatable per invocation, the board never changes.
+// DSTAR_LITE is forced to plan from scratch here, its incremental repairs show up in TickBenchmark.
+// HPA searches a cluster graph built once in setup and returns only the refined first segment
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathfinderBenchmark {
+    @Param({"EMPTY", "DENSE", "MAZE", "UNREACHABLE"})
+    public String board;
+
+    @Param({"ASTAR", "BFS", "DIJKSTRA", "DSTAR_LITE", "JPS", "HPA"})
+    public String algorithm;
+
+    @Param({"true", "false"})
+    public boolean optimal;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private Pathfinder pathfinder;
+    private DStarLite dStarLite;
+    private ClusterGraph clusterGraph;
+    private Snake snake;
+    private int target;
+    private PathAlgorithm pathAlgorithm;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GameEngine engine = Boards.build(Boards.Kind.valueOf(board), size);
+        pathfinder = new Pathfinder(engine.occupancy);
+        dStarLite = new DStarLite(engine.occupancy);
+        clusterGraph = new ClusterGraph(engine.occupancy);
+        clusterGraph.update();
+        snake = engine.snakes.get(0);
+        target = engine.cellOf(engine.eatables.get(0));
+        pathAlgorithm = PathAlgorithm.valueOf(algorithm);
+    }
+
+    @Benchmark
+    public int search() {
+        switch (pathAlgorithm) {
+            case ASTAR: return pathfinder.aStar(snake, target, optimal);
+            case BFS: return pathfinder.bfs(snake, target, optimal);
+            case DIJKSTRA: return pathfinder.dijkstra(snake, target, optimal);
+            case JPS: return pathfinder.jps(snake, target, optimal);
+            case HPA: return pathfinder.hpa(snake, target, optimal, clusterGraph);
+            case DSTAR_LITE:
+                dStarLite.invalidate();
+                return dStarLite.plan(snake, target);
+            default: throw new IllegalStateException("no benchmark for " + pathAlgorithm);
+        }
+    }
+}
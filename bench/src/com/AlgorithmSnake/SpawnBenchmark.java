@@ -0,0 +1,33 @@
+package com.AlgorithmSnake;
+import org.openjdk.jmh.annotations.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Eatable.spawn on boards where most of the playable cells are already taken, up to a full one
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpawnBenchmark {
+    @Param({"0.5", "0.9", "0.99", "1.0"})
+    public double fill;
+
+    private Occupancy occupancy;
+    private Eatable eatable;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        occupancy = Boards.crowded(fill, Boards.SEED);
+        eatable = new Eatable();
+        random = new Random(Boards.SEED);
+    }
+
+    @Benchmark
+    public Object spawn() {
+        eatable.spawn(occupancy, random);
+        return eatable.position;
+    }
+}
@@ -0,0 +1,49 @@
+package com.AlgorithmSnake;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// one full GameEngine.tick with n ai snakes and f eatables, with and without the shared distance
+// field and with the snakes planning one after another or all at once on the common pool.
+// a finished game is replaced by a fresh arena
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+    @Param({"3", "12", "48", "256"})
+    public int snakes;
+
+    @Param({"1", "32"})
+    public int food;
+
+    @Param({"false", "true"})
+    public boolean sharedField;
+
+    @Param({"false", "true"})
+    public boolean parallelPlanning;
+
+    private GameEngine engine;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        engine = newArena();
+    }
+
+    private GameEngine newArena() {
+        GameEngine arena = Boards.arena(snakes, food);
+        arena.sharedField = sharedField;
+        arena.parallelPlanning = parallelPlanning;
+        return arena;
+    }
+
+    @Benchmark
+    public int tick() {
+        if (engine.isOver()) {
+            engine = newArena();
+        }
+        engine.tick();
+        return engine.getTicks();
+    }
+}
@@ -0,0 +1,126 @@
+package com.AlgorithmSnake;
+import java.util.Arrays;
+
+// flood fill straight on the occupancy bitset, 64 cells per long at a time. with a stride of 64
+// or more every row is a whole number of words and the border and padding columns are wall.
+// a work list of words: a word grows its reached cells over the whole free runs they lie in with
+// doubling shifts, hands them to the words a row up and down and carries its end bits into the
+// words beside it, and is queued again whenever a neighbour adds cells. an open board costs a
+// few visits per word instead of a queue step per cell.
+// it only answers which cells are reachable, not how far, layering breadth first search the same
+// way does not pay off on a 4 connected grid: a bfs frontier is a diamond with about two cells
+// per row, so a word of frontier rarely holds more than one cell and the queue in Pathfinder wins.
+class BitboardFlood {
+    private final long[] bits;
+    private final int wordsPerRow;
+    private final long[] reached; // cells reached by the last fill, 0 outside the words listed in filled
+    private final boolean[] queued;
+    private int[] work = new int[256];
+    private int[] filled = new int[256]; // words the last fill reached, to clear them on the next one
+    private int filledCount = 0;
+    private int passableWord;
+    private long passableBit;
+
+    static boolean fits(Occupancy occupancy) {
+        return occupancy.stride >= Long.SIZE;
+    }
+
+    BitboardFlood(Occupancy occupancy) {
+        if (!fits(occupancy)) {
+            throw new IllegalArgumentException("rows of " + occupancy.stride + " cells do not fill a word");
+        }
+        this.bits = occupancy.words();
+        this.wordsPerRow = occupancy.stride / Long.SIZE;
+        this.reached = new long[bits.length];
+        this.queued = new boolean[bits.length];
+    }
+
+    // number of cells reachable from start, the start included. passable is a set cell that may
+    // be stepped on anyway, the snake's own tail, -1 for none
+    int fill(int start, int passable) {
+        for (int k = 0; k < filledCount; k++) {
+            reached[filled[k]] = 0;
+        }
+        filledCount = 0;
+        passableWord = passable < 0 ? -1 : passable >>> 6;
+        passableBit = 1L << passable;
+        int startWord = start >>> 6;
+        long startBit = 1L << start;
+        reached[startWord] = startBit;
+        addFilled(startWord);
+        int count = 0;
+        work[count++] = startWord;
+        queued[startWord] = true;
+        while (count > 0) {
+            int i = work[--count];
+            queued[i] = false;
+            // the start is taken by the head, runs still have to pass through it
+            long free = i == startWord ? free(i) | startBit : free(i);
+            long cells = fillRuns(reached[i], free);
+            reached[i] = cells;
+            count = offer(i - wordsPerRow, cells, count);
+            count = offer(i + wordsPerRow, cells, count);
+            if (cells < 0) {
+                count = offer(i + 1, 1L, count);
+            }
+            if ((cells & 1) != 0) {
+                count = offer(i - 1, 1L << 63, count);
+            }
+        }
+        int total = 0;
+        for (int k = 0; k < filledCount; k++) {
+            total += Long.bitCount(reached[filled[k]]);
+        }
+        return total;
+    }
+
+    boolean isReached(int cell) {
+        return (reached[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // adds the free ones of cells to a word and queues it when that changed it
+    private int offer(int i, long cells, int count) {
+        long fresh = cells & free(i) & ~reached[i];
+        if (fresh == 0) {
+            return count;
+        }
+        if (reached[i] == 0) {
+            addFilled(i);
+        }
+        reached[i] |= fresh;
+        if (!queued[i]) {
+            queued[i] = true;
+            if (count == work.length) {
+                work = Arrays.copyOf(work, count * 2);
+            }
+            work[count++] = i;
+        }
+        return count;
+    }
+
+    // grows cells along x over the whole free runs they lie in, doubling the step both ways
+    private static long fillRuns(long cells, long free) {
+        long east = cells;
+        long west = cells;
+        long eastFree = free;
+        long westFree = free;
+        for (int step = 1; step < Long.SIZE; step <<= 1) {
+            east |= (east << step) & eastFree;
+            west |= (west >>> step) & westFree;
+            eastFree &= eastFree << step;
+            westFree &= westFree >>> step;
+        }
+        return east | west;
+    }
+
+    private long free(int i) {
+        return i == passableWord ? ~bits[i] | passableBit : ~bits[i];
+    }
+
+    private void addFilled(int i) {
+        if (filledCount == filled.length) {
+            filled = Arrays.copyOf(filled, filledCount * 2);
+        }
+        filled[filledCount++] = i;
+    }
+}
@@ -0,0 +1,128 @@
+package com.AlgorithmSnake;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+// persistent picture of the board, the panel scales it onto the screen with a single blit.
+// after a tick only the cells in the occupancy journal and the old and new eatables are redrawn,
+// so the cost follows what moved instead of the length of the snakes or the size of the board.
+// boards too big for the screen map a block of cells to one pixel, a pixel shows an eatable,
+// else a snake, else a wall found in its block so one cell wide snakes do not vanish.
+// it reads the engine directly and has to be updated on the thread that ticks the engine.
+class BoardImage {
+    private static final int BACKGROUND = Color.BLACK.getRGB();
+    private static final int WALL = Color.WHITE.getRGB();
+    private static final int EATABLE = Color.YELLOW.getRGB();
+    final BufferedImage image;
+    private final int[] pixels;
+    private final GameEngine engine;
+    private final Occupancy occupancy;
+    private final int block; // cells per pixel along each side
+    private final int imageWidth;
+    private int[] colorById = new int[16]; // rgb per snake id, filled from the roster on demand
+    private long seenChanges;
+    private int[] eatableCells = new int[0];
+
+    BoardImage(GameEngine engine, int block) {
+        this.engine = engine;
+        this.occupancy = engine.occupancy;
+        this.block = block;
+        this.imageWidth = (engine.width + block - 1) / block;
+        this.image = new BufferedImage(imageWidth, (engine.height + block - 1) / block, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        redrawAll();
+    }
+
+    static Color colorOf(PathAlgorithm algorithm) {
+        if (algorithm == null) return Color.MAGENTA;
+        switch (algorithm) {
+            case ASTAR: return Color.GREEN;
+            case BFS: return Color.RED;
+            case DIJKSTRA: return Color.BLUE;
+            case DSTAR_LITE: return Color.ORANGE;
+            case JPS: return Color.CYAN;
+            case HPA: return Color.PINK;
+            case LOOKAHEAD: return Color.LIGHT_GRAY;
+            default: return Color.GRAY;
+        }
+    }
+
+    // brings the image up to date with the engine, returns false when nothing changed
+    public boolean update() {
+        int[] eatables = engine.eatableCells();
+        long changes = occupancy.changeCount();
+        if (changes == seenChanges && Arrays.equals(eatables, eatableCells)) {
+            return false;
+        }
+        if (!occupancy.journalCovers(seenChanges)) {
+            redrawAll();
+            return true;
+        }
+        for (long change = seenChanges; change < changes; change++) {
+            drawCell(occupancy.changedCell(change));
+        }
+        for (int cell : eatableCells) {
+            drawCell(cell);
+        }
+        seenChanges = changes;
+        drawEatables(eatables);
+        return true;
+    }
+
+    private void redrawAll() {
+        for (int y = 0; y < engine.height; y += block) {
+            for (int x = 0; x < engine.width; x += block) {
+                drawCell(occupancy.cell(x, y));
+            }
+        }
+        seenChanges = occupancy.changeCount();
+        drawEatables(engine.eatableCells());
+    }
+
+    private void drawEatables(int[] cells) {
+        eatableCells = cells;
+        for (int cell : cells) {
+            pixels[pixelOf(cell)] = EATABLE;
+        }
+    }
+
+    // repaints the pixel holding the cell from every cell of its block
+    private void drawCell(int cell) {
+        int x0 = occupancy.x(cell) / block * block;
+        int y0 = occupancy.y(cell) / block * block;
+        if (x0 >= engine.width) {
+            return; // padding right of the board
+        }
+        int rgb = BACKGROUND;
+        for (int y = y0; y < Math.min(y0 + block, engine.height); y++) {
+            for (int x = x0; x < Math.min(x0 + block, engine.width); x++) {
+                int owner = occupancy.ownerOf(occupancy.cell(x, y));
+                if (owner > 0) {
+                    rgb = colorOfSnake(owner);
+                } else if (owner == Occupancy.WALL && rgb == BACKGROUND) {
+                    rgb = WALL;
+                }
+            }
+        }
+        pixels[pixelOf(cell)] = rgb;
+    }
+
+    private int pixelOf(int cell) {
+        return occupancy.y(cell) / block * imageWidth + occupancy.x(cell) / block;
+    }
+
+    private int colorOfSnake(int id) {
+        if (id >= colorById.length || colorById[id] == 0) {
+            if (id >= colorById.length) {
+                colorById = Arrays.copyOf(colorById, Math.max(id + 1, colorById.length * 2));
+            }
+            for (Snake snake : engine.roster) {
+                if (snake.id < colorById.length) {
+                    colorById[snake.id] = colorOf(snake.algorithm).getRGB();
+                }
+            }
+        }
+        return colorById[id];
+    }
+}
@@ -0,0 +1,420 @@
+package com.AlgorithmSnake;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// lets bots outside this program play over local tcp. one thread runs the game and every
+// connection on a non-blocking selector: it waits in a lobby until the bots are connected, then
+// ticks the headless engine, each bot steering a snake without an algorithm next to any ai snakes.
+// a tick is played once every bot with a living snake has answered or when its step is up, on an
+// absolute schedule like Simulation. a bot that is late or silent goes straight on.
+//
+// every message from the server is an int length and then the payload, numbers big endian:
+//   hello     byte HELLO, int snake id, int width, int height, long seed, int step in microseconds
+//   frame     the records ReplayWriter puts in a file: the first frame is a keyframe, the others a
+//             tick record with a keyframe after it every ReplayWriter.KEYFRAME_INTERVAL ticks. a
+//             tick costs about a byte per snake instead of the whole board
+//   over      byte OVER, int last tick, int winner id or -1
+// a bot answers every frame with an int tick, the one about to be played, and a byte direction
+// index as in replays. answers for any other tick are counted late and dropped, a turn back into
+// the snake is ignored. every frame is built once and shared by all connections, a bot that lets
+// more than MAX_BACKLOG of them pile up is disconnected and its snake goes straight on.
+class BotServer implements GameRecorder {
+    static final byte HELLO = 'H';
+    static final byte OVER = 'O';
+    static final int REPLY_SIZE = 5;
+    private static final int MAX_BACKLOG = 64; // frames queued for one bot
+    private static final int MAX_CATCH_UP = 5;
+    private static final long POLL_NANOS = 50_000; // below a millisecond select cannot wait, poll instead
+    private static final long FLUSH_NANOS = 1_000_000_000L; // for the last frames before closing
+    private final Selector selector;
+    private final ServerSocketChannel listener;
+    private final List<Bot> bots = new ArrayList<>();
+    private GameEngine engine;
+    private ByteBuffer frame; // the next frame, built while the engine ticks
+    private int frameCapacity = 256;
+    private int stride;
+    private int tick;
+    private int expected; // connected bots with a living snake
+    private int waiting; // of those the ones that have not answered for the next tick
+    long onTime = 0;
+    long late = 0;
+    long missing = 0;
+    int dropped = 0;
+    long bytesSent = 0;
+
+    private static final class Bot {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(16 * REPLY_SIZE);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        Snake snake;
+        int reply = -1; // direction index for the next tick, -1 until the bot answers
+        boolean connected = true;
+
+        Bot(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    // listens on the loopback interface, port 0 picks a free one
+    BotServer(int port) throws IOException {
+        selector = Selector.open();
+        listener = ServerSocketChannel.open();
+        listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        listener.configureBlocking(false);
+        listener.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    InetSocketAddress address() throws IOException {
+        return (InetSocketAddress) listener.getLocalAddress();
+    }
+
+    // blocks until count bots are connected, later ones are turned away
+    void waitForBots(int count) throws IOException {
+        while (bots.size() < count) {
+            selector.select();
+            selector.selectedKeys().clear();
+            SocketChannel channel;
+            while (bots.size() < count && (channel = listener.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                // nothing is read before the game starts
+                SelectionKey key = channel.register(selector, 0);
+                Bot bot = new Bot(channel, key);
+                key.attach(bot);
+                bots.add(bot);
+            }
+        }
+        listener.close();
+        selector.selectNow(); // flushes the cancelled listener key
+    }
+
+    // plays the engine with one snake per connected bot added at seeded start positions after
+    // its own, returns the number of ticks played
+    int play(GameEngine engine, long stepNanos, int maxTicks) throws IOException {
+        this.engine = engine;
+        for (Bot bot : bots) {
+            bot.snake = engine.addRandomSnake(null);
+            ByteBuffer hello = ByteBuffer.allocate(4 + 25);
+            hello.putInt(25).put(HELLO).putInt(bot.snake.id).putInt(engine.width).putInt(engine.height)
+                    .putLong(engine.seed).putInt((int) (stepNanos / 1000)).flip();
+            send(bot, hello);
+            bot.key.interestOps(bot.key.interestOps() | SelectionKey.OP_READ);
+        }
+        engine.spawnFood();
+        startFrame();
+        engine.record(this);
+        publish();
+
+        long next = System.nanoTime() + stepNanos;
+        while (!engine.isOver() && engine.getTicks() < maxTicks) {
+            long now = System.nanoTime();
+            long wait = next - now;
+            if (wait > 0 && (waiting > 0 || expected == 0)) {
+                if (wait >= 1_000_000 ? selector.select(wait / 1_000_000) == 0 : selector.selectNow() == 0) {
+                    LockSupport.parkNanos(Math.min(wait, POLL_NANOS));
+                }
+                handle();
+                continue;
+            }
+            if (waiting == 0) {
+                next = now + stepNanos; // everyone answered, the next step starts now
+            } else if (-wait > MAX_CATCH_UP * stepNanos) {
+                next = now + stepNanos;
+            } else {
+                next += stepNanos;
+            }
+            tick();
+        }
+
+        ByteBuffer over = ByteBuffer.allocate(4 + 9);
+        Snake winner = engine.getWinner();
+        over.putInt(9).put(OVER).putInt(engine.getTicks()).putInt(winner == null ? -1 : winner.id).flip();
+        for (Bot bot : bots) {
+            if (bot.connected) {
+                send(bot, over.duplicate());
+            }
+        }
+        flush();
+        return engine.getTicks();
+    }
+
+    private void tick() throws IOException {
+        int[] offsets = {1, -1, engine.occupancy.stride, -engine.occupancy.stride};
+        for (Bot bot : bots) {
+            if (bot.snake.diedAt >= 0) {
+                continue;
+            }
+            if (bot.reply >= 0) {
+                int direction = offsets[bot.reply];
+                if (direction != -bot.snake.direction) {
+                    bot.snake.direction = direction;
+                }
+                bot.reply = -1;
+                onTime++;
+            } else if (bot.connected) {
+                missing++;
+            }
+        }
+        engine.tick();
+        publish();
+    }
+
+    // sends the frame the engine just recorded to every bot and starts the next one
+    private void publish() throws IOException {
+        frame.putInt(0, frame.position() - 4).flip();
+        frameCapacity = Math.max(frameCapacity, frame.capacity());
+        for (Bot bot : bots) {
+            if (bot.connected) {
+                send(bot, frame.duplicate());
+            }
+        }
+        expected = 0;
+        for (Bot bot : bots) {
+            if (bot.connected && bot.snake.diedAt < 0) {
+                expected++;
+            }
+        }
+        waiting = expected;
+        startFrame();
+    }
+
+    private void startFrame() {
+        frame = ByteBuffer.allocate(frameCapacity);
+        frame.putInt(0); // length, filled in by publish
+    }
+
+    private void send(Bot bot, ByteBuffer message) throws IOException {
+        if (bot.out.isEmpty()) {
+            write(bot, message);
+            if (!message.hasRemaining()) {
+                return;
+            }
+            bot.key.interestOps(bot.key.interestOps() | SelectionKey.OP_WRITE);
+        }
+        bot.out.add(message);
+        if (bot.out.size() > MAX_BACKLOG) {
+            drop(bot, "fell more than " + MAX_BACKLOG + " frames behind");
+        }
+    }
+
+    private void write(Bot bot, ByteBuffer message) {
+        try {
+            bytesSent += bot.channel.write(message);
+        } catch (IOException e) {
+            drop(bot, e.getMessage());
+        }
+    }
+
+    private void handle() {
+        for (SelectionKey key : selector.selectedKeys()) {
+            Bot bot = (Bot) key.attachment();
+            if (key.isValid() && key.isWritable()) {
+                while (bot.connected && !bot.out.isEmpty()) {
+                    write(bot, bot.out.peek());
+                    if (bot.out.peek().hasRemaining()) {
+                        break;
+                    }
+                    bot.out.poll();
+                }
+                if (bot.connected && bot.out.isEmpty()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(bot);
+            }
+        }
+        selector.selectedKeys().clear();
+    }
+
+    private void read(Bot bot) {
+        int count;
+        try {
+            count = bot.channel.read(bot.in);
+        } catch (IOException e) {
+            drop(bot, e.getMessage());
+            return;
+        }
+        if (count < 0) {
+            drop(bot, "disconnected");
+            return;
+        }
+        bot.in.flip();
+        while (bot.in.remaining() >= REPLY_SIZE) {
+            int replyTick = bot.in.getInt();
+            int direction = bot.in.get();
+            if (direction < 0 || direction > 3) {
+                drop(bot, "sent direction index " + direction);
+                return;
+            }
+            if (replyTick != engine.getTicks() + 1 || bot.snake.diedAt >= 0) {
+                late++;
+                continue;
+            }
+            if (bot.reply < 0) {
+                waiting--;
+            }
+            bot.reply = direction;
+        }
+        bot.in.compact();
+    }
+
+    private void drop(Bot bot, String reason) {
+        if (!bot.connected) {
+            return;
+        }
+        bot.connected = false;
+        bot.out.clear();
+        if (bot.snake != null && bot.snake.diedAt < 0) {
+            expected--;
+            if (bot.reply < 0) {
+                waiting--;
+            }
+        }
+        dropped++;
+        System.err.println("bot of snake " + (bot.snake == null ? "?" : bot.snake.id) + " dropped: " + reason);
+        try {
+            bot.channel.close();
+        } catch (IOException e) {
+            // it is gone either way
+        }
+    }
+
+    // gives slow readers a moment to take the last frames, then closes everything
+    private void flush() throws IOException {
+        for (Bot bot : bots) {
+            if (bot.connected) {
+                bot.key.interestOps(bot.key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+        long end = System.nanoTime() + FLUSH_NANOS;
+        while (System.nanoTime() < end && bots.stream().anyMatch(bot -> bot.connected && !bot.out.isEmpty())) {
+            selector.select(10);
+            handle();
+        }
+        for (Bot bot : bots) {
+            bot.channel.close();
+        }
+        selector.close();
+    }
+
+    @Override
+    public void begin(GameEngine engine) {
+        stride = engine.occupancy.stride;
+        tick = engine.getTicks();
+        keyframe(engine);
+    }
+
+    @Override
+    public void beginTick() {
+        tick++;
+        ensure(1);
+        frame.put(ReplayWriter.TICK);
+    }
+
+    @Override
+    public void step(Snake snake, boolean moved, boolean ate, int spawned) {
+        ensure(5);
+        ReplayWriter.putStep(frame, snake, moved, ate, spawned, stride);
+    }
+
+    @Override
+    public void keyframe(GameEngine engine) {
+        ensure(ReplayWriter.keyframeSize(engine));
+        ReplayWriter.putKeyframe(frame, engine, tick);
+    }
+
+    private void ensure(int bytes) {
+        if (frame.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * frame.capacity(), frame.position() + bytes));
+            frame.flip();
+            frame = bigger.put(frame);
+        }
+    }
+
+    // options first: --port n (0 picks one), --bots n to wait for, --local n bots started in this
+    // process, --step micros, --size n, --seed n, --food n, --ticks n. then the ai algorithms
+    public static void main(String[] args) throws Exception {
+        int port = 0;
+        int botCount = -1;
+        int local = 0;
+        long step = 10_000;
+        int size = GameEngine.DEFAULT_SIZE;
+        long seed = 1L;
+        int food = 1;
+        int maxTicks = 100_000;
+        while (args.length > 0 && args[0].startsWith("--")) {
+            if (args.length < 2) {
+                throw new IllegalArgumentException("option " + args[0] + " needs a value");
+            }
+            long value = Long.parseLong(args[1]);
+            if (args[0].equals("--port")) {
+                port = (int) value;
+            } else if (args[0].equals("--bots")) {
+                botCount = (int) value;
+            } else if (args[0].equals("--local")) {
+                local = (int) value;
+            } else if (args[0].equals("--step")) {
+                step = value;
+            } else if (args[0].equals("--size")) {
+                size = (int) value;
+            } else if (args[0].equals("--seed")) {
+                seed = value;
+            } else if (args[0].equals("--food")) {
+                food = (int) value;
+            } else if (args[0].equals("--ticks")) {
+                maxTicks = (int) value;
+            } else {
+                throw new IllegalArgumentException("unknown option " + args[0]);
+            }
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        if (botCount < 0) {
+            botCount = Math.max(local, 1);
+        }
+        if (step <= 0) {
+            throw new IllegalArgumentException("the step must be at least a microsecond");
+        }
+
+        BotServer server = new BotServer(port);
+        InetSocketAddress address = server.address();
+        System.out.println("waiting for " + botCount + " bots on " + address);
+        for (int i = 0; i < local; i++) {
+            new LocalBot(address).start();
+        }
+        server.waitForBots(botCount);
+
+        GameEngine engine = new GameEngine(seed, size, size);
+        for (String name : args) {
+            engine.addRandomSnake(PathAlgorithm.valueOf(name.toUpperCase()));
+        }
+        engine.foodCount = food;
+        long start = System.nanoTime();
+        int ticks = server.play(engine, step * 1000, maxTicks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d ticks in %.2f s, %.0f ticks/s, %d bots%n", ticks, seconds, ticks / seconds, botCount);
+        System.out.printf("answers on time %d, late %d, missing %d, bots dropped %d, %.1f KB sent%n",
+                server.onTime, server.late, server.missing, server.dropped, server.bytesSent / 1024.0);
+        Snake winner = engine.getWinner();
+        for (Snake snake : engine.roster) {
+            System.out.printf("snake %3d %-10s score %4d %s%s%n", snake.id,
+                    snake.algorithm == null ? "BOT" : snake.algorithm.name(), snake.score,
+                    snake.diedAt < 0 ? "alive" : "died at " + snake.diedAt, snake == winner ? "  winner" : "");
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.AlgorithmSnake;
+import java.util.Arrays;
+
+// abstract graph for hierarchical pathfinding (hpa*). the board is cut into square clusters and
+// wherever a run of free cells faces free cells across a cluster border there is an entrance,
+// crossed by one transition in the middle of the run, or one at each end when the run is long.
+// transition cells are the nodes of the graph, inside a cluster they are joined by their bfs
+// distance within it. a changed cell dirties its own cluster and, on a cluster edge, the border
+// it lies on, so after a tick only the clusters around moved heads and tails are redone and the
+// upkeep follows what moved instead of the size of the board.
+// a dirty cluster is only measured again when a search first reads it, so with many snakes
+// moving in turn and each hpa snake updating the graph before it plans, clusters nobody searches
+// through are not redone over and over.
+// one graph is shared by every hpa snake, it has to be updated on the ticking thread before
+// searches read it, and rebuildDirty has to run before searches read it from several threads.
+// Pathfinder.hpa does the searching.
+class ClusterGraph {
+    static final int CLUSTER_SHIFT = 4;
+    static final int CLUSTER_SIZE = 1 << CLUSTER_SHIFT;
+    static final int MAX_NODES = 2 * CLUSTER_SIZE; // at most one node every other cell per border
+    private static final int LONG_ENTRANCE = 6;
+    private static final int[] NONE = new int[0];
+    private final Occupancy occupancy;
+    private final int[] neighborOffsets;
+    final int clustersX;
+    final int clustersY;
+    private final int verticalBorders;
+    private final int[][] transitions; // per border, pairs of cells facing each other, low side first
+    private final int[][] nodes; // per cluster, its transition cells
+    private final int[][] distances; // per cluster, k * k distances inside the cluster, -1 when apart
+    private final boolean[] dirtyCluster;
+    private final boolean[] dirtyBorder;
+    private int[] dirtyClusters = new int[64];
+    private int dirtyClusterCount = 0;
+    private int[] dirtyBorders = new int[64];
+    private int dirtyBorderCount = 0;
+    // bfs scratch, indexed by local cell. a rebuild copies the cluster's free cells into open once
+    // and every bfs inside it runs on the local grid without going back to the occupancy
+    private final boolean[] open = new boolean[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] nodeAt = new int[CLUSTER_SIZE * CLUSTER_SIZE]; // node index + 1, 0 for none
+    private final int[] level = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] levelStamp = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] queue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] found = new int[MAX_NODES]; // a rebuilt cluster's nodes before they are copied out
+    private final int[] crossings = new int[4 * CLUSTER_SIZE]; // a border's transitions before they are compared
+    private int epoch = 0;
+    private long seenChanges = -1; // -1 until the first full build
+    int rebuiltClusters = 0;
+
+    ClusterGraph(Occupancy occupancy) {
+        this.occupancy = occupancy;
+        this.neighborOffsets = new int[]{1, -1, occupancy.stride, -occupancy.stride};
+        this.clustersX = (occupancy.width + CLUSTER_SIZE - 1) >> CLUSTER_SHIFT;
+        this.clustersY = (occupancy.height + CLUSTER_SIZE - 1) >> CLUSTER_SHIFT;
+        this.verticalBorders = (clustersX - 1) * clustersY;
+        this.transitions = new int[verticalBorders + clustersX * (clustersY - 1)][];
+        this.nodes = new int[clustersX * clustersY][];
+        this.distances = new int[clustersX * clustersY][];
+        this.dirtyCluster = new boolean[nodes.length];
+        this.dirtyBorder = new boolean[transitions.length];
+    }
+
+    int clusters() {
+        return nodes.length;
+    }
+
+    int clusterOf(int cell) {
+        return (occupancy.y(cell) >> CLUSTER_SHIFT) * clustersX + (occupancy.x(cell) >> CLUSTER_SHIFT);
+    }
+
+    // index of a cell within its cluster, for per cluster scratch arrays
+    int localIndex(int cell) {
+        return (occupancy.y(cell) & (CLUSTER_SIZE - 1)) << CLUSTER_SHIFT | (occupancy.x(cell) & (CLUSTER_SIZE - 1));
+    }
+
+    int[] nodes(int cluster) {
+        if (dirtyCluster[cluster]) {
+            rebuildCluster(cluster);
+        }
+        return nodes[cluster];
+    }
+
+    // distance inside the cluster between two of its nodes, -1 when they are not connected in it
+    int distance(int cluster, int from, int to) {
+        return distances[cluster][from * nodes(cluster).length + to];
+    }
+
+    // position of the cell in the node list of its cluster, -1 when it is no node
+    int nodeIndex(int cluster, int cell) {
+        int[] clusterNodes = nodes(cluster);
+        for (int i = 0; i < clusterNodes.length; i++) {
+            if (clusterNodes[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // true for neighbours on the board that lie in another cluster, padding cells are not on it
+    boolean crossesBorder(int cell, int neighbor) {
+        return occupancy.x(neighbor) < occupancy.width && clusterOf(neighbor) != clusterOf(cell);
+    }
+
+    // brings the graph up to date with the occupancy, redoing only what the journal says changed.
+    // borders are redone right away, the clusters whose nodes or cells changed when first read
+    void update() {
+        // drop the clusters searches have rebuilt since, so each dirty one is listed once
+        int kept = 0;
+        for (int i = 0; i < dirtyClusterCount; i++) {
+            if (dirtyCluster[dirtyClusters[i]]) {
+                dirtyClusters[kept++] = dirtyClusters[i];
+            }
+        }
+        dirtyClusterCount = kept;
+        long changes = occupancy.changeCount();
+        if (seenChanges < 0 || !occupancy.journalCovers(seenChanges)) {
+            for (int border = 0; border < transitions.length; border++) {
+                markBorder(border);
+            }
+            for (int cluster = 0; cluster < nodes.length; cluster++) {
+                markCluster(cluster);
+            }
+        } else {
+            for (long change = seenChanges; change < changes; change++) {
+                markChanged(occupancy.changedCell(change));
+            }
+        }
+        seenChanges = changes;
+
+        for (int i = 0; i < dirtyBorderCount; i++) {
+            int border = dirtyBorders[i];
+            dirtyBorder[border] = false;
+            int count = findTransitions(border);
+            int[] old = transitions[border];
+            if (old == null || !Arrays.equals(crossings, 0, count, old, 0, old.length)) {
+                transitions[border] = count == 0 ? NONE : Arrays.copyOf(crossings, count);
+                markCluster(lowCluster(border));
+                markCluster(highCluster(border));
+            }
+        }
+        dirtyBorderCount = 0;
+    }
+
+    // measures every cluster still waiting for it, reading the graph is then free of writes
+    void rebuildDirty() {
+        for (int i = 0; i < dirtyClusterCount; i++) {
+            if (dirtyCluster[dirtyClusters[i]]) {
+                rebuildCluster(dirtyClusters[i]);
+            }
+        }
+        dirtyClusterCount = 0;
+    }
+
+    private void markChanged(int cell) {
+        int x = occupancy.x(cell);
+        int y = occupancy.y(cell);
+        if (x >= occupancy.width) {
+            return; // padding
+        }
+        int cx = x >> CLUSTER_SHIFT;
+        int cy = y >> CLUSTER_SHIFT;
+        markCluster(cy * clustersX + cx);
+        int localX = x & (CLUSTER_SIZE - 1);
+        int localY = y & (CLUSTER_SIZE - 1);
+        if (localX == CLUSTER_SIZE - 1 && cx + 1 < clustersX) {
+            markBorder(cy * (clustersX - 1) + cx);
+        } else if (localX == 0 && cx > 0) {
+            markBorder(cy * (clustersX - 1) + cx - 1);
+        }
+        if (localY == CLUSTER_SIZE - 1 && cy + 1 < clustersY) {
+            markBorder(verticalBorders + cy * clustersX + cx);
+        } else if (localY == 0 && cy > 0) {
+            markBorder(verticalBorders + (cy - 1) * clustersX + cx);
+        }
+    }
+
+    private void markCluster(int cluster) {
+        if (!dirtyCluster[cluster]) {
+            dirtyCluster[cluster] = true;
+            if (dirtyClusterCount == dirtyClusters.length) {
+                dirtyClusters = Arrays.copyOf(dirtyClusters, dirtyClusterCount * 2);
+            }
+            dirtyClusters[dirtyClusterCount++] = cluster;
+        }
+    }
+
+    private void markBorder(int border) {
+        if (!dirtyBorder[border]) {
+            dirtyBorder[border] = true;
+            if (dirtyBorderCount == dirtyBorders.length) {
+                dirtyBorders = Arrays.copyOf(dirtyBorders, dirtyBorderCount * 2);
+            }
+            dirtyBorders[dirtyBorderCount++] = border;
+        }
+    }
+
+    // vertical borders come first, border b of them lies right of cluster b + b / (clustersX - 1)
+    private int lowCluster(int border) {
+        if (border < verticalBorders) {
+            return border / (clustersX - 1) * clustersX + border % (clustersX - 1);
+        }
+        return border - verticalBorders;
+    }
+
+    private int highCluster(int border) {
+        return border < verticalBorders ? lowCluster(border) + 1 : lowCluster(border) + clustersX;
+    }
+
+    // walks the cell pairs along the border and places transitions on every run of open pairs,
+    // leaves them in crossings and returns how many cells it wrote there
+    private int findTransitions(int border) {
+        int low = lowCluster(border);
+        int cx = low % clustersX;
+        int cy = low / clustersX;
+        boolean vertical = border < verticalBorders;
+        int first;
+        int length;
+        int along;
+        int across;
+        if (vertical) {
+            first = occupancy.cell(((cx + 1) << CLUSTER_SHIFT) - 1, cy << CLUSTER_SHIFT);
+            length = Math.min(CLUSTER_SIZE, occupancy.height - (cy << CLUSTER_SHIFT));
+            along = occupancy.stride;
+            across = 1;
+        } else {
+            first = occupancy.cell(cx << CLUSTER_SHIFT, ((cy + 1) << CLUSTER_SHIFT) - 1);
+            length = Math.min(CLUSTER_SIZE, occupancy.width - (cx << CLUSTER_SHIFT));
+            along = 1;
+            across = occupancy.stride;
+        }
+
+        int[] found = crossings;
+        int count = 0;
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            int cell = first + i * along;
+            boolean open = i < length && !occupancy.isSet(cell) && !occupancy.isSet(cell + across);
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                int runEnd = i - 1;
+                if (runEnd - runStart + 1 >= LONG_ENTRANCE) {
+                    int a = first + runStart * along;
+                    int b = first + runEnd * along;
+                    found[count++] = a;
+                    found[count++] = a + across;
+                    found[count++] = b;
+                    found[count++] = b + across;
+                } else {
+                    int middle = first + (runStart + runEnd) / 2 * along;
+                    found[count++] = middle;
+                    found[count++] = middle + across;
+                }
+                runStart = -1;
+            }
+        }
+        return count;
+    }
+
+    // collects the cluster's side of its four borders and measures every node pair inside it
+    private void rebuildCluster(int cluster) {
+        dirtyCluster[cluster] = false;
+        rebuiltClusters++;
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        int count = 0;
+        if (cx > 0) {
+            count = addSide(found, count, transitions[cy * (clustersX - 1) + cx - 1], 1);
+        }
+        if (cx + 1 < clustersX) {
+            count = addSide(found, count, transitions[cy * (clustersX - 1) + cx], 0);
+        }
+        if (cy > 0) {
+            count = addSide(found, count, transitions[verticalBorders + (cy - 1) * clustersX + cx], 1);
+        }
+        if (cy + 1 < clustersY) {
+            count = addSide(found, count, transitions[verticalBorders + cy * clustersX + cx], 0);
+        }
+        int[] clusterNodes = Arrays.copyOf(found, count);
+        int[] clusterDistances = new int[count * count];
+        loadCluster(cx, cy);
+        for (int i = 0; i < count; i++) {
+            nodeAt[localIndex(clusterNodes[i])] = i + 1;
+        }
+        // distances are symmetric, the bfs from node i only has to find the nodes after it
+        for (int i = 0; i < count; i++) {
+            clusterDistances[i * count + i] = 0;
+            if (i + 1 < count) {
+                bfs(localIndex(clusterNodes[i]), i, count - 1 - i);
+            }
+            for (int j = i + 1; j < count; j++) {
+                int local = localIndex(clusterNodes[j]);
+                int distance = levelStamp[local] == epoch ? level[local] : -1;
+                clusterDistances[i * count + j] = distance;
+                clusterDistances[j * count + i] = distance;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            nodeAt[localIndex(clusterNodes[i])] = 0;
+        }
+        nodes[cluster] = clusterNodes;
+        distances[cluster] = clusterDistances;
+    }
+
+    // side 0 takes the low cell of each pair, side 1 the high one. a corner cell can sit on two
+    // borders, it is one node
+    private int addSide(int[] found, int count, int[] pairs, int side) {
+        if (pairs == null) {
+            return count;
+        }
+        for (int i = side; i < pairs.length; i += 2) {
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = found[j] == pairs[i];
+            }
+            if (!seen) {
+                found[count++] = pairs[i];
+            }
+        }
+        return count;
+    }
+
+    // cells of the cluster that are on the board and free, a cluster on the far edge can be cut short
+    private void loadCluster(int cx, int cy) {
+        int left = cx << CLUSTER_SHIFT;
+        int top = cy << CLUSTER_SHIFT;
+        for (int ly = 0; ly < CLUSTER_SIZE; ly++) {
+            for (int lx = 0; lx < CLUSTER_SIZE; lx++) {
+                int x = left + lx;
+                int y = top + ly;
+                open[ly << CLUSTER_SHIFT | lx] = x < occupancy.width && y < occupancy.height
+                        && !occupancy.isSet(occupancy.cell(x, y));
+            }
+        }
+    }
+
+    // bfs over the loaded cluster from a local cell, stops once it has found the given number of
+    // nodes after the one it starts from
+    private void bfs(int from, int fromNode, int wanted) {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(levelStamp, 0);
+            epoch = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        level[from] = 0;
+        levelStamp[from] = epoch;
+        queue[tail++] = from;
+        while (head < tail && wanted > 0) {
+            int current = queue[head++];
+            int next = level[current] + 1;
+            int lx = current & (CLUSTER_SIZE - 1);
+            for (int k = 0; k < 4; k++) {
+                int neighbor;
+                if (k == 0) {
+                    neighbor = lx + 1 < CLUSTER_SIZE ? current + 1 : -1;
+                } else if (k == 1) {
+                    neighbor = lx > 0 ? current - 1 : -1;
+                } else if (k == 2) {
+                    neighbor = current + CLUSTER_SIZE < open.length ? current + CLUSTER_SIZE : -1;
+                } else {
+                    neighbor = current - CLUSTER_SIZE;
+                }
+                if (neighbor < 0 || !open[neighbor] || levelStamp[neighbor] == epoch) {
+                    continue;
+                }
+                levelStamp[neighbor] = epoch;
+                level[neighbor] = next;
+                queue[tail++] = neighbor;
+                if (nodeAt[neighbor] > fromNode + 1) {
+                    wanted--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.AlgorithmSnake;
+import java.util.Arrays;
+
+// incremental planner (D* Lite) that keeps its search tree between ticks. it searches backwards
+// from the eatable, so the head moving only shifts the key modifier km, and cells taken or freed
+// since the last call are read from the occupancy journal and repaired locally. it starts over
+// only when the eatable moved or the journal no longer covers everything that changed.
+// one instance belongs to one snake, the path of the last plan is left in path like Pathfinder.
+class DStarLite {
+    private static final int INF = 1 << 28;
+    private final Occupancy occupancy;
+    private final int[] neighborOffsets;
+    private final int[] g;
+    private final int[] rhs;
+    private final int[] stamp; // epoch in which g/rhs/heapIndex were initialised
+    private final int[] heapIndex; // position in heap + 1, 0 when not queued
+    private int[] heap = new int[1024];
+    private long[] heapKeys = new long[1024]; // packed (k1 << 32) | k2, parallel to heap
+    private int size = 0;
+    private int epoch = 0;
+    private Snake snake;
+    private int goal = -1;
+    private int last = -1;
+    private int km = 0;
+    private long seenChanges = 0;
+    private int lastTail = -1;
+    private boolean lastStacked = false;
+    int expansions = 0; // vertices popped by the last plan
+    int maxFrontier = 0; // largest queue of the last plan
+    int[] path = new int[256];
+
+    DStarLite(Occupancy occupancy) {
+        this.occupancy = occupancy;
+        int cells = occupancy.height << occupancy.shift;
+        this.neighborOffsets = new int[]{1, -1, occupancy.stride, -occupancy.stride};
+        this.g = new int[cells];
+        this.rhs = new int[cells];
+        this.stamp = new int[cells];
+        this.heapIndex = new int[cells];
+    }
+
+    // forgets the search tree, the next plan starts from scratch
+    public void invalidate() {
+        goal = -1;
+    }
+
+    public int plan(Snake snake, int target) {
+        this.snake = snake;
+        int start = snake.getHeadCell();
+        int tail = snake.getTailCell();
+        boolean stacked = snake.isTailStacked();
+        expansions = 0;
+        maxFrontier = size;
+
+        if (target != goal || !occupancy.journalCovers(seenChanges)) {
+            reset(start, target);
+        } else {
+            if (start != last) {
+                km += heuristic(last, start);
+                last = start;
+            }
+            long changes = occupancy.changeCount();
+            for (long change = seenChanges; change < changes; change++) {
+                cellChanged(occupancy.changedCell(change));
+            }
+            // the own tail is walkable, so the tail moving changes costs without touching the grid
+            if (tail != lastTail || stacked != lastStacked) {
+                cellChanged(lastTail);
+                cellChanged(tail);
+            }
+        }
+        seenChanges = occupancy.changeCount();
+        lastTail = tail;
+        lastStacked = stacked;
+
+        computeShortestPath(start);
+        return extractPath(start);
+    }
+
+    private void reset(int start, int target) {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        size = 0;
+        km = 0;
+        goal = target;
+        last = start;
+        touch(goal);
+        rhs[goal] = 0;
+        insert(goal, calculateKey(goal, start));
+    }
+
+    private void computeShortestPath(int start) {
+        touch(start);
+        while (size > 0 && (heapKeys[0] < calculateKey(start, start) || rhs[start] > g[start])) {
+            expansions++;
+            maxFrontier = Math.max(maxFrontier, size);
+            int u = heap[0];
+            long oldKey = heapKeys[0];
+            long newKey = calculateKey(u, start);
+            if (oldKey < newKey) {
+                update(u, newKey);
+            } else if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                remove(u);
+                int cost = cost(u);
+                for (int offset : neighborOffsets) {
+                    int s = u + offset;
+                    if (s != goal && occupancy.ownerOf(s) != Occupancy.WALL) {
+                        touch(s);
+                        rhs[s] = Math.min(rhs[s], Math.min(INF, cost + g[u]));
+                        updateVertex(s, start);
+                    }
+                }
+            } else {
+                int oldG = g[u];
+                g[u] = INF;
+                int oldCost = Math.min(INF, cost(u) + oldG);
+                for (int offset : neighborOffsets) {
+                    int s = u + offset;
+                    if (s != goal && occupancy.ownerOf(s) != Occupancy.WALL) {
+                        touch(s);
+                        if (rhs[s] == oldCost) {
+                            rhs[s] = bestSuccessor(s);
+                        }
+                        updateVertex(s, start);
+                    }
+                }
+                if (u != goal) {
+                    rhs[u] = bestSuccessor(u);
+                }
+                updateVertex(u, start);
+            }
+        }
+    }
+
+    // entering the cell got cheaper or dearer, so every neighbour stepping into it is out of date
+    private void cellChanged(int cell) {
+        if (cell < 0) return;
+        for (int offset : neighborOffsets) {
+            int s = cell + offset;
+            if (s >= 0 && s < g.length && s != goal && occupancy.ownerOf(s) != Occupancy.WALL) {
+                touch(s);
+                rhs[s] = bestSuccessor(s);
+                updateVertex(s, last);
+            }
+        }
+    }
+
+    private int extractPath(int start) {
+        // the start is left locally underconsistent, so its rhs is the distance that counts
+        if (Math.min(g[start], rhs[start]) >= INF) {
+            return 0;
+        }
+        int length = 0;
+        int current = start;
+        while (current != goal && length <= g.length) {
+            int best = -1;
+            int bestCost = INF;
+            for (int offset : neighborOffsets) {
+                int s = current + offset;
+                if (stamp[s] == epoch) {
+                    int c = Math.min(INF, cost(s) + g[s]);
+                    if (c < bestCost) {
+                        best = s;
+                        bestCost = c;
+                    }
+                }
+            }
+            if (best < 0) {
+                return 0;
+            }
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = best;
+            current = best;
+        }
+        return length;
+    }
+
+    private int bestSuccessor(int s) {
+        int best = INF;
+        for (int offset : neighborOffsets) {
+            int next = s + offset;
+            if (stamp[next] == epoch) {
+                best = Math.min(best, cost(next) + g[next]);
+            }
+        }
+        return Math.min(best, INF);
+    }
+
+    private int cost(int cell) {
+        return occupancy.isBlocked(cell, snake) ? INF : 1;
+    }
+
+    private int heuristic(int a, int b) {
+        return Math.abs(occupancy.x(a) - occupancy.x(b)) + Math.abs(occupancy.y(a) - occupancy.y(b));
+    }
+
+    private long calculateKey(int s, int start) {
+        int m = Math.min(g[s], rhs[s]);
+        return ((long) Math.min(INF, m + heuristic(start, s) + km) << 32) | m;
+    }
+
+    private void updateVertex(int u, int start) {
+        boolean queued = heapIndex[u] != 0;
+        if (g[u] != rhs[u]) {
+            if (queued) {
+                update(u, calculateKey(u, start));
+            } else {
+                insert(u, calculateKey(u, start));
+            }
+        } else if (queued) {
+            remove(u);
+        }
+    }
+
+    // lazily brings a cell into the current epoch with both values at infinity
+    private void touch(int cell) {
+        if (stamp[cell] != epoch) {
+            stamp[cell] = epoch;
+            g[cell] = INF;
+            rhs[cell] = INF;
+            heapIndex[cell] = 0;
+        }
+    }
+
+    private void insert(int cell, long key) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            heapKeys = Arrays.copyOf(heapKeys, size * 2);
+        }
+        heap[size] = cell;
+        heapKeys[size] = key;
+        heapIndex[cell] = ++size;
+        siftUp(size - 1);
+    }
+
+    private void update(int cell, long key) {
+        int i = heapIndex[cell] - 1;
+        long old = heapKeys[i];
+        heapKeys[i] = key;
+        if (key < old) {
+            siftUp(i);
+        } else {
+            siftDown(i);
+        }
+    }
+
+    private void remove(int cell) {
+        int i = heapIndex[cell] - 1;
+        heapIndex[cell] = 0;
+        int lastCell = heap[--size];
+        if (i < size) {
+            heap[i] = lastCell;
+            heapKeys[i] = heapKeys[size];
+            heapIndex[lastCell] = i + 1;
+            siftDown(i);
+            siftUp(heapIndex[lastCell] - 1);
+        }
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        long key = heapKeys[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (key >= heapKeys[parent]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapKeys[i] = heapKeys[parent];
+            heapIndex[heap[i]] = i + 1;
+            i = parent;
+        }
+        heap[i] = cell;
+        heapKeys[i] = key;
+        heapIndex[cell] = i + 1;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        long key = heapKeys[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if (right < size && heapKeys[child] > heapKeys[right]) {
+                child = right;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapKeys[i] = heapKeys[child];
+            heapIndex[heap[i]] = i + 1;
+            i = child;
+        }
+        heap[i] = cell;
+        heapKeys[i] = key;
+        heapIndex[cell] = i + 1;
+    }
+}
@@ -0,0 +1,120 @@
+package com.AlgorithmSnake;
+
+// distance from the nearest eatable to every free cell, one reverse bfs from all eatables at once
+// shared by all snakes. a snake steps to its neighbour with the smallest distance instead of
+// running its own search. the field is rebuilt only when an eatable moved or a changed cell
+// touches the reached area.
+// distances live in a single int per cell as base + distance, a new build raises the base above
+// everything written before, so nothing has to be cleared and old values read as unreached.
+class DistanceField {
+    private final Occupancy occupancy;
+    private final int[] neighborOffsets;
+    private final int[] level;
+    private int base = 1; // levels below base belong to older builds
+    private int top = 0; // largest level written so far
+    private int[] queue = new int[1024];
+    private int[] targets = new int[0];
+    private long seenChanges = 0;
+    int rebuilds = 0;
+
+    DistanceField(Occupancy occupancy) {
+        this.occupancy = occupancy;
+        int cells = occupancy.height << occupancy.shift;
+        this.neighborOffsets = new int[]{1, -1, occupancy.stride, -occupancy.stride};
+        this.level = new int[cells];
+    }
+
+    public void update(int[] targets) {
+        if (!java.util.Arrays.equals(targets, this.targets) || isStale()) {
+            rebuild(targets);
+        }
+        seenChanges = occupancy.changeCount();
+    }
+
+    // next cell on a shortest path from the snake head to an eatable, -1 when it cannot get there
+    public int nextStep(Snake snake) {
+        int head = snake.getHeadCell();
+        int best = -1;
+        int bestDist = Integer.MAX_VALUE;
+        for (int offset : neighborOffsets) {
+            int neighbor = head + offset;
+            if (level[neighbor] >= base && level[neighbor] < bestDist && !occupancy.isBlocked(neighbor, snake)) {
+                best = neighbor;
+                bestDist = level[neighbor];
+            }
+        }
+        return best;
+    }
+
+    public int distanceTo(int cell) {
+        return level[cell] >= base ? level[cell] - base : -1;
+    }
+
+    private boolean isStale() {
+        long changes = occupancy.changeCount();
+        if (!occupancy.journalCovers(seenChanges)) {
+            return true;
+        }
+        for (long change = seenChanges; change < changes; change++) {
+            if (touchesField(occupancy.changedCell(change))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a newly taken cell matters if it was reached, a freed one if it borders the reached area
+    private boolean touchesField(int cell) {
+        if (level[cell] >= base) {
+            return true;
+        }
+        for (int offset : neighborOffsets) {
+            int neighbor = cell + offset;
+            if (neighbor >= 0 && neighbor < level.length && level[neighbor] >= base) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rebuild(int[] targets) {
+        if (top > Integer.MAX_VALUE - level.length - 1) {
+            java.util.Arrays.fill(level, 0);
+            top = 0;
+        }
+        base = top + 1;
+        this.targets = targets.clone();
+        rebuilds++;
+        int head = 0;
+        int tail = 0;
+        if (queue.length < targets.length) {
+            queue = new int[Integer.highestOneBit(targets.length) * 2];
+        }
+        for (int target : targets) {
+            level[target] = base;
+            queue[tail++] = target;
+        }
+        while (head < tail) {
+            int current = queue[head++];
+            int next = level[current] + 1;
+            for (int offset : neighborOffsets) {
+                int neighbor = current + offset;
+                if (level[neighbor] < base && !occupancy.isSet(neighbor)) {
+                    level[neighbor] = next;
+                    if (tail == queue.length) {
+                        // cells are appended once and never wrap, compact the consumed prefix or grow
+                        System.arraycopy(queue, head, queue, 0, tail - head);
+                        tail -= head;
+                        head = 0;
+                        if (tail == queue.length) {
+                            queue = java.util.Arrays.copyOf(queue, queue.length * 2);
+                        }
+                    }
+                    queue[tail++] = neighbor;
+                }
+            }
+            top = Math.max(top, next);
+        }
+        top = Math.max(top, base);
+    }
+}
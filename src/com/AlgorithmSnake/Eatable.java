@@ -0,0 +1,24 @@
+package com.AlgorithmSnake;
+import java.awt.Point;
+import java.util.Random;
+
+// class for an eatable the snakes are racing for, a game can have several of them
+class Eatable {
+    Point position;
+
+    // moves to a uniformly random free cell and reserves it, on a full board there is no such
+    // cell, the position becomes null and spawn returns false
+    public boolean spawn(Occupancy occupancy, Random random) {
+        if (position != null) {
+            occupancy.unreserve(occupancy.cell(position.x, position.y));
+        }
+        int cell = occupancy.randomFreeCell(random);
+        if (cell < 0) {
+            position = null;
+            return false;
+        }
+        occupancy.reserve(cell);
+        position = new Point(occupancy.x(cell), occupancy.y(cell));
+        return true;
+    }
+}
@@ -0,0 +1,135 @@
+package com.AlgorithmSnake;
+import java.util.Arrays;
+
+// where the eatables are, so that neither the lookup after every move nor the nearest eatable
+// for every planning snake has to go through all of them. cells map straight to their eatable
+// through an array over the board, the occupied cells are kept in a list for plain scans, and
+// the board is cut into BUCKET_SIZE square buckets holding the eatable cells inside them. the
+// nearest searches rings of buckets around the head and stops once the next ring cannot hold
+// anything closer. with only a few eatables a plain scan is cheaper than walking empty buckets.
+class EatableIndex {
+    private static final int BUCKET_SHIFT = 4;
+    private static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+    private static final int SCAN_LIMIT = 16;
+    private final Occupancy occupancy;
+    private final int bucketsX;
+    private final int bucketsY;
+    private final Eatable[] byCell;
+    private int[] cells = new int[16]; // eatable cells, the first count are valid
+    private final int[] slot; // position of each cell in cells, -1 when there is no eatable on it
+    private int count = 0;
+    private final int[][] buckets; // eatable cells per bucket, the first bucketSize[b] are valid
+    private final int[] bucketSize;
+
+    EatableIndex(Occupancy occupancy) {
+        this.occupancy = occupancy;
+        this.bucketsX = (occupancy.width + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+        this.bucketsY = (occupancy.height + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+        this.buckets = new int[bucketsX * bucketsY][];
+        this.bucketSize = new int[buckets.length];
+        this.byCell = new Eatable[occupancy.height * occupancy.stride];
+        this.slot = new int[byCell.length];
+        Arrays.fill(slot, -1);
+    }
+
+    void add(int cell, Eatable eatable) {
+        byCell[cell] = eatable;
+        if (slot[cell] >= 0) {
+            return; // another eatable on the same cell, the lists already hold it
+        }
+        if (count == cells.length) {
+            cells = Arrays.copyOf(cells, count * 2);
+        }
+        slot[cell] = count;
+        cells[count++] = cell;
+        int bucket = bucketOf(cell);
+        if (buckets[bucket] == null) {
+            buckets[bucket] = new int[4];
+        } else if (bucketSize[bucket] == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], bucketSize[bucket] * 2);
+        }
+        buckets[bucket][bucketSize[bucket]++] = cell;
+    }
+
+    void remove(int cell) {
+        if (byCell[cell] == null) {
+            return;
+        }
+        byCell[cell] = null;
+        int last = cells[--count];
+        cells[slot[cell]] = last;
+        slot[last] = slot[cell];
+        slot[cell] = -1;
+        int bucket = bucketOf(cell);
+        int[] cells = buckets[bucket];
+        for (int i = 0; i < bucketSize[bucket]; i++) {
+            if (cells[i] == cell) {
+                cells[i] = cells[--bucketSize[bucket]];
+                return;
+            }
+        }
+    }
+
+    // eatable on the cell, null when there is none
+    Eatable at(int cell) {
+        return byCell[cell];
+    }
+
+    // eatable cell closest to the given one by manhattan distance, the lowest cell on a tie,
+    // -1 when there are no eatables
+    int nearest(int from) {
+        if (count <= SCAN_LIMIT) {
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                int cell = cells[i];
+                int distance = distance(from, cell);
+                if (distance < bestDistance || distance == bestDistance && cell < best) {
+                    best = cell;
+                    bestDistance = distance;
+                }
+            }
+            return best;
+        }
+        int bx = occupancy.x(from) >> BUCKET_SHIFT;
+        int by = occupancy.y(from) >> BUCKET_SHIFT;
+        int maxRing = Math.max(Math.max(bx, bucketsX - 1 - bx), Math.max(by, bucketsY - 1 - by));
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every cell of a bucket in this ring is at least this far along x or y
+            if ((ring - 1) * BUCKET_SIZE + 1 > bestDistance) {
+                break;
+            }
+            for (int y = by - ring; y <= by + ring; y++) {
+                if (y < 0 || y >= bucketsY) {
+                    continue;
+                }
+                boolean edgeRow = y == by - ring || y == by + ring;
+                for (int x = bx - ring; x <= bx + ring; x += edgeRow ? 1 : 2 * Math.max(ring, 1)) {
+                    if (x < 0 || x >= bucketsX) {
+                        continue;
+                    }
+                    int bucket = y * bucketsX + x;
+                    for (int i = 0; i < bucketSize[bucket]; i++) {
+                        int cell = buckets[bucket][i];
+                        int distance = distance(from, cell);
+                        if (distance < bestDistance || distance == bestDistance && cell < best) {
+                            best = cell;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int bucketOf(int cell) {
+        return (occupancy.y(cell) >> BUCKET_SHIFT) * bucketsX + (occupancy.x(cell) >> BUCKET_SHIFT);
+    }
+
+    private int distance(int a, int b) {
+        return Math.abs(occupancy.x(a) - occupancy.x(b)) + Math.abs(occupancy.y(a) - occupancy.y(b));
+    }
+}
@@ -0,0 +1,793 @@
+package com.AlgorithmSnake;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// headless game loop, owns the snakes and the eatables and advances them one tick at a time.
+// nothing in here touches swing so it can be driven by a timer, a batch runner or a test.
+class GameEngine {
+    static final int DEFAULT_SIZE = 100;
+    static final int MAX_SIZE = 4096;
+    static final int MIN_SIZE = 10;
+    static final int MIN_POS = 1; // the outermost ring of cells is wall
+    private static final int START_TRIES = 1000; // random start positions drawn before scanning for one
+    final int width;
+    final int height;
+    final int maxX;
+    final int maxY;
+    final List<Snake> snakes = new ArrayList<>();
+    final List<Snake> roster = new ArrayList<>(); // every snake that took part, dead ones included
+    final List<Eatable> eatables = new ArrayList<>(); // only placed ones, a full board drops them
+    int foodCount = 1; // eatables spawnFood keeps on the board
+    final Occupancy occupancy;
+    private final EatableIndex eatableIndex;
+    private final Pathfinder pathfinder;
+    // snakes without an algorithm are steered from outside, the player or a BotServer bot: they go
+    // on in their direction every tick and whoever steers them turns them in between
+    Snake playerSnake;
+    GameRecorder recorder; // gets every tick of the game when set, see record
+    // every ai snake follows one distance field from the eatables instead of running its own search,
+    // all algorithms find shortest paths so this trades their tie breaking for one search per tick
+    boolean sharedField = false;
+    // all ai snakes plan at once on a pool against the board as it was when the tick started,
+    // then every snake moves at the same time, see moveSimultaneously for how clashes are settled
+    boolean parallelPlanning = false;
+    ExecutorService planningPool = ForkJoinPool.commonPool();
+    // planning time per tick shared out evenly between the ai snakes, 0 for no limit. in turn each
+    // search gets its share of the budget, with parallel planning the searches run side by side
+    // and share it only with those queued on the same pool thread. a search that runs out of its
+    // share walks towards the cell closest to the eatable it got to and counts in deadlineHits.
+    // d* lite and the shared field are not limited
+    long tickBudgetNanos = 0;
+    final LongAdder deadlineHits = new LongAdder();
+    private long snakeBudgetNanos = 0;
+    // playouts per move of a lookahead snake, spread over the cores when parallelRollouts is set
+    // and the snakes do not already plan in parallel. the tick budget cuts them short as well
+    int lookaheadRollouts = 512;
+    boolean parallelRollouts = false;
+    private final ConcurrentLinkedQueue<Pathfinder> sparePathfinders = new ConcurrentLinkedQueue<>();
+    // scratch of moveSimultaneously: up to four options per snake from 4 * i, and the cells
+    // claimed this tick as a list of claims that claimOfCell points into by cell
+    private int[] options = new int[0];
+    private int[] optionCount = new int[0];
+    private int[] nextOption = new int[0];
+    private int[] choice = new int[0];
+    private int[] proposal = new int[0]; // claim snake i makes in the current round, -1 for none
+    private int[] spawned = new int[0];
+    private Eatable[] eaten = new Eatable[0];
+    private int[] eaterOrder = new int[0];
+    private int[] claimOfCell; // board sized, allocated on first use
+    private int[] claimCell = new int[0];
+    private int[] claimBest = new int[0]; // snake ahead in the claim's contest this round
+    private int[] claimRound = new int[0];
+    private boolean[] claimTie = new boolean[0];
+    private boolean[] claimGranted = new boolean[0];
+    private int claimCount = 0;
+    private DistanceField distanceField;
+    private ClusterGraph clusterGraph; // shared by hpa snakes, built on first use
+    private final Map<Snake, DStarLite> incrementalPlanners = new HashMap<>();
+    private final Map<Snake, Lookahead> lookaheads = new HashMap<>();
+    private final int[] verticalTurns;   // fallback turns for a snake heading left or right
+    private final int[] horizontalTurns; // and for one heading up or down
+    private final Random random;
+    final long seed;
+    private boolean gameOver = false;
+    private int ticks = 0;
+    private int nextSnakeId = 1;
+
+    GameEngine(boolean playerMode) {
+        this(playerMode, DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    // the classic game, start positions are laid out for 100x100 and stretched to the board
+    GameEngine(boolean playerMode, int width, int height) {
+        this(new Random().nextLong(), width, height);
+        if (playerMode) {
+            playerSnake = addClassicSnake(50, 50, null, false);
+        }
+
+        addClassicSnake(40, 55, PathAlgorithm.ASTAR, true);
+        addClassicSnake(20, 30, PathAlgorithm.BFS, true);
+        addClassicSnake(75, 75, PathAlgorithm.DIJKSTRA, true);
+        addClassicSnake(70, 25, PathAlgorithm.JPS, true);
+
+        spawnFood();
+    }
+
+    // the player, if any, in the middle and every snake of the lineup at a random start. the
+    // start positions come from the engine's own random source, see randomStart
+    GameEngine(boolean playerMode, int width, int height, List<PathAlgorithm> lineup) {
+        this(new Random().nextLong(), width, height);
+        if (playerMode) {
+            playerSnake = addSnake(width / 2, height / 2, null, false);
+        }
+        for (PathAlgorithm algorithm : lineup) {
+            addRandomSnake(algorithm);
+        }
+        spawnFood();
+    }
+
+    // empty board without any snakes or eatables, for callers that set up their own scenario.
+    // all randomness of the game comes from the seed so the same setup replays the same game.
+    GameEngine(long seed) {
+        this(seed, DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    GameEngine(long seed, int width, int height) {
+        if (width < MIN_SIZE || height < MIN_SIZE || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("board must be between " + MIN_SIZE + " and " + MAX_SIZE
+                    + " cells per side, got " + width + "x" + height);
+        }
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.width = width;
+        this.height = height;
+        this.maxX = width - 2;
+        this.maxY = height - 2;
+        this.occupancy = new Occupancy(width, height);
+        this.eatableIndex = new EatableIndex(occupancy);
+        this.pathfinder = new Pathfinder(occupancy);
+        this.verticalTurns = new int[]{occupancy.stride, -occupancy.stride};
+        this.horizontalTurns = new int[]{1, -1};
+    }
+
+    // reproducible ai only game, one snake per entry of the lineup placed at seeded start positions
+    static GameEngine seeded(long seed, List<PathAlgorithm> lineup) {
+        return seeded(seed, lineup, DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    static GameEngine seeded(long seed, List<PathAlgorithm> lineup, int width, int height) {
+        GameEngine engine = new GameEngine(seed, width, height);
+        for (PathAlgorithm algorithm : lineup) {
+            engine.addRandomSnake(algorithm);
+        }
+        engine.spawnFood();
+        return engine;
+    }
+
+    // snake at a start laid out for 100x100 and stretched to the board, kept far enough from the
+    // walls that the body trailing to the left fits. on small boards stretched starts can land on
+    // one another, a start that is taken is swapped for a random one
+    private Snake addClassicSnake(int x, int y, PathAlgorithm algorithm, boolean optimal) {
+        int headX = Math.max(MIN_POS + 2, Math.min(maxX, x * width / DEFAULT_SIZE));
+        int headY = Math.max(MIN_POS, Math.min(maxY, y * height / DEFAULT_SIZE));
+        for (int dx = -2; dx <= 0; dx++) {
+            if (occupancy.isSet(occupancy.cell(headX + dx, headY))) {
+                int start = randomStart();
+                if (start < 0) {
+                    throw new IllegalStateException("no room left on the board for snake " + nextSnakeId);
+                }
+                headX = occupancy.x(start);
+                headY = occupancy.y(start);
+                break;
+            }
+        }
+        return addSnake(headX, headY, algorithm, optimal);
+    }
+
+    // tops the eatables up to foodCount, false when the board filled up before all of them had a cell
+    boolean spawnFood() {
+        while (eatables.size() < foodCount) {
+            Eatable eatable = new Eatable();
+            if (!spawn(eatable)) {
+                return false;
+            }
+            eatables.add(eatable);
+        }
+        return true;
+    }
+
+    private boolean spawn(Eatable eatable) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (eatable.position != null) {
+            eatableIndex.remove(cellOf(eatable));
+        }
+        boolean placed = eatable.spawn(occupancy, random);
+        if (placed) {
+            eatableIndex.add(cellOf(eatable), eatable);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.SPAWN.record(System.nanoTime() - start);
+        }
+        return placed;
+    }
+
+    // puts an eatable on a chosen free cell, for scenarios and replays
+    Eatable placeEatable(int cell) {
+        Eatable eatable = new Eatable();
+        moveEatable(eatable, cell);
+        eatables.add(eatable);
+        return eatable;
+    }
+
+    // moves the eatable to the cell, -1 takes it off the board
+    void moveEatable(Eatable eatable, int cell) {
+        if (eatable.position != null) {
+            occupancy.unreserve(cellOf(eatable));
+            eatableIndex.remove(cellOf(eatable));
+        }
+        if (cell < 0) {
+            eatable.position = null;
+            eatables.remove(eatable);
+        } else {
+            occupancy.reserve(cell);
+            eatable.position = new Point(occupancy.x(cell), occupancy.y(cell));
+            eatableIndex.add(cell, eatable);
+        }
+    }
+
+    int cellOf(Eatable eatable) {
+        return occupancy.cell(eatable.position.x, eatable.position.y);
+    }
+
+    // eatable on the cell, null when there is none
+    Eatable eatableAt(int cell) {
+        return eatableIndex.at(cell);
+    }
+
+    int[] eatableCells() {
+        int[] cells = new int[eatables.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = cellOf(eatables.get(i));
+        }
+        return cells;
+    }
+
+    // the snake grows and the eatable respawns, returns where it went or -1 when the board was full
+    private int eat(Snake snake, Eatable eatable) {
+        snake.eatEatable();
+        if (spawn(eatable)) {
+            return cellOf(eatable);
+        }
+        eatables.remove(eatable);
+        return -1;
+    }
+
+    // the eatable closest to the head by manhattan distance, -1 when there is none
+    int targetFor(Snake snake) {
+        return eatableIndex.nearest(snake.getHeadCell());
+    }
+
+    // head position with the starting body and a few cells ahead of it free, -1 when there is none.
+    // after START_TRIES random misses the board is crowded and gets scanned row by row instead
+    private int randomStart() {
+        for (int i = 0; i < START_TRIES; i++) {
+            int x = MIN_POS + 2 + random.nextInt(maxX - MIN_POS - 5);
+            int y = MIN_POS + random.nextInt(maxY - MIN_POS + 1);
+            if (startFits(x, y)) {
+                return occupancy.cell(x, y);
+            }
+        }
+        for (int y = MIN_POS; y <= maxY; y++) {
+            for (int x = MIN_POS + 2; x <= maxX - 3; x++) {
+                if (startFits(x, y)) {
+                    return occupancy.cell(x, y);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean startFits(int x, int y) {
+        for (int dx = -2; dx <= 3; dx++) {
+            if (occupancy.isSet(occupancy.cell(x + dx, y))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // snake at a start position drawn from the engine's random source, null steers it from outside
+    Snake addRandomSnake(PathAlgorithm algorithm) {
+        int start = randomStart();
+        if (start < 0) {
+            throw new IllegalStateException("no room left on the board for snake " + nextSnakeId);
+        }
+        return addSnake(occupancy.x(start), occupancy.y(start), algorithm, algorithm != null);
+    }
+
+    // x, y is the head, the starting body trails two cells to the left of it
+    Snake addSnake(int x, int y, PathAlgorithm algorithm, boolean optimal) {
+        if (nextSnakeId > Occupancy.MAX_SNAKE_ID) {
+            throw new IllegalStateException("no more than " + Occupancy.MAX_SNAKE_ID + " snakes per game");
+        }
+        Snake snake = new Snake(nextSnakeId++, occupancy.cell(x, y), algorithm, optimal, occupancy);
+        snakes.add(snake);
+        roster.add(snake);
+        return snake;
+    }
+
+    public boolean isOver() {
+        return gameOver;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    // last snake standing, null while running or when everyone died in the same tick
+    public Snake getWinner() {
+        return gameOver && snakes.size() == 1 ? snakes.get(0) : null;
+    }
+
+    public GameSnapshot snapshot() {
+        return new GameSnapshot(this);
+    }
+
+    // hands the current state to the recorder, after that every tick goes to it as well
+    void record(GameRecorder recorder) {
+        this.recorder = recorder;
+        recorder.begin(this);
+    }
+
+    // plays until a winner is decided or maxTicks is reached, returns the number of ticks played
+    public int run(int maxTicks) {
+        while (!gameOver && ticks < maxTicks) {
+            tick();
+        }
+        return ticks;
+    }
+
+    public void tick() {
+        if (gameOver) return;
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        ticks++;
+        List<Snake> snakesToRemove = new ArrayList<>();
+        int planners = 0;
+        for (Snake snake : snakes) {
+            if (snake.algorithm != null) {
+                planners++;
+            }
+        }
+        int rounds = planners;
+        if (parallelPlanning) {
+            int threads = planningPool instanceof ForkJoinPool
+                    ? ((ForkJoinPool) planningPool).getParallelism() : Runtime.getRuntime().availableProcessors();
+            rounds = (planners + threads - 1) / threads;
+        }
+        snakeBudgetNanos = tickBudgetNanos / Math.max(rounds, 1);
+        if (sharedField) {
+            // computed once per tick against the board as it was before anyone moved
+            long fieldStart = Metrics.ENABLED ? System.nanoTime() : 0;
+            distanceField().update(eatableCells());
+            if (Metrics.ENABLED) {
+                Metrics.FIELD.record(System.nanoTime() - fieldStart);
+            }
+        }
+
+        if (recorder != null) {
+            recorder.beginTick();
+        }
+
+        if (parallelPlanning) {
+            moveSimultaneously(snakesToRemove);
+        } else {
+            moveInTurn(snakesToRemove);
+        }
+
+        for (Snake snake : snakesToRemove) {
+            snake.release();
+            snake.diedAt = ticks;
+            incrementalPlanners.remove(snake);
+            lookaheads.remove(snake);
+        }
+        snakes.removeAll(snakesToRemove);
+
+        if (snakes.size() <= 1) {
+            gameOver = true;
+        }
+        if (recorder != null && ticks % ReplayWriter.KEYFRAME_INTERVAL == 0) {
+            recorder.keyframe(this);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.TICK.record(System.nanoTime() - start);
+        }
+    }
+
+    // snakes plan and move one after another, each one sees the moves of those before it
+    private void moveInTurn(List<Snake> snakesToRemove) {
+        for (Snake snake : new ArrayList<>(snakes)) {
+            if (snake.algorithm == null) {
+                moveSteeredSnake(snake, snakesToRemove);
+                continue;
+            }
+
+            preparePlanner(snake);
+            int next = planStep(snake, pathfinder);
+
+            boolean moved = false;
+            if (next >= 0) {
+                if (!willCollide(snake, next)) {
+                    snake.setDirection(next);
+                    snake.move();
+                    moved = true;
+                }
+            }
+            if (!moved) {
+                int newHead = snake.getHeadCell() + snake.direction;
+                if (!willCollide(snake, newHead)) {
+                    snake.move();
+                    moved = true;
+                } else {
+                    for (int turn : possibleTurns(snake.direction)) {
+                        int testHead = snake.getHeadCell() + turn;
+                        if (!willCollide(snake, testHead)) {
+                            snake.setDirection(testHead);
+                            snake.move();
+                            moved = true;
+                            break;
+                        }
+                    }
+                    if (!moved) {
+                        snakesToRemove.add(snake);
+                    }
+                }
+            }
+
+            Eatable eaten = eatableAt(snake.getHeadCell());
+            int spawned = eaten == null ? -1 : eat(snake, eaten);
+            if (recorder != null) {
+                recorder.step(snake, moved, eaten != null, spawned);
+            }
+        }
+    }
+
+    // every ai snake plans in parallel on the untouched board, the occupancy is frozen meanwhile
+    // so a stray write would fail loudly instead of racing with the searches. then all snakes
+    // move at once: each one lists the cells it would take in order of preference (its plan,
+    // straight ahead, the turns), all of them free at the start of the tick. rounds of claims
+    // follow, a cell wanted by one snake is granted, a contested one goes to the strictly longest
+    // snake and on a tie to nobody, losers move on to their next choice. snakes left without a
+    // cell die. the outcome does not depend on the order of the snake list.
+    private void moveSimultaneously(List<Snake> snakesToRemove) {
+        List<Snake> moving = snakes;
+        int n = moving.size();
+        int[] planned = planAll(moving);
+        ensureMoveScratch(n);
+        for (int i = 0; i < n; i++) {
+            optionCount[i] = moveOptions(moving.get(i), planned[i], options, 4 * i);
+        }
+
+        Arrays.fill(nextOption, 0, n, 0);
+        Arrays.fill(choice, 0, n, -1);
+        claimCount = 0;
+        int round = 0;
+        boolean proposed = true;
+        while (proposed) {
+            proposed = false;
+            round++;
+            for (int i = 0; i < n; i++) {
+                proposal[i] = -1;
+                if (choice[i] >= 0) continue;
+                while (nextOption[i] < optionCount[i] && claimGranted[claimOf(options[4 * i + nextOption[i]])]) {
+                    nextOption[i]++;
+                }
+                if (nextOption[i] == optionCount[i]) {
+                    continue; // nowhere left to go
+                }
+                int cell = options[4 * i + nextOption[i]];
+                int claim = claimOf(cell);
+                proposal[i] = claim;
+                proposed = true;
+                if (claimRound[claim] != round) {
+                    claimRound[claim] = round;
+                    claimBest[claim] = i;
+                    claimTie[claim] = false;
+                } else {
+                    int difference = moving.get(i).length() - moving.get(claimBest[claim]).length();
+                    if (difference > 0) {
+                        claimBest[claim] = i;
+                        claimTie[claim] = false;
+                    } else if (difference == 0) {
+                        claimTie[claim] = true;
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                int claim = proposal[i];
+                if (claim < 0) continue;
+                if (claimBest[claim] == i && !claimTie[claim]) {
+                    choice[i] = claimCell[claim];
+                    claimGranted[claim] = true;
+                } else {
+                    nextOption[i]++;
+                }
+            }
+        }
+
+        int eaters = 0;
+        for (int i = 0; i < n; i++) {
+            Snake snake = moving.get(i);
+            spawned[i] = -1;
+            eaten[i] = null;
+            if (choice[i] < 0) {
+                snakesToRemove.add(snake);
+                if (snake == playerSnake) {
+                    playerSnake = null;
+                }
+                continue;
+            }
+            snake.setDirection(choice[i]);
+            snake.move();
+            eaten[i] = eatableAt(choice[i]);
+            if (eaten[i] != null) {
+                // respawns draw from the random source, so they go by snake id and not by list position
+                int k = eaters++;
+                while (k > 0 && moving.get(eaterOrder[k - 1]).id > snake.id) {
+                    eaterOrder[k] = eaterOrder[k - 1];
+                    k--;
+                }
+                eaterOrder[k] = i;
+            }
+        }
+        for (int k = 0; k < eaters; k++) {
+            int i = eaterOrder[k];
+            spawned[i] = eat(moving.get(i), eaten[i]);
+        }
+        if (recorder != null) {
+            for (int i = 0; i < n; i++) {
+                recorder.step(moving.get(i), choice[i] >= 0, eaten[i] != null, spawned[i]);
+            }
+        }
+    }
+
+    // per snake scratch of moveSimultaneously for n snakes, kept between ticks
+    private void ensureMoveScratch(int n) {
+        if (claimOfCell == null) {
+            claimOfCell = new int[occupancy.height * occupancy.stride];
+        }
+        if (choice.length >= n) {
+            return;
+        }
+        int size = Math.max(n, 2 * choice.length);
+        options = new int[4 * size];
+        optionCount = new int[size];
+        nextOption = new int[size];
+        choice = new int[size];
+        proposal = new int[size];
+        spawned = new int[size];
+        eaten = new Eatable[size];
+        eaterOrder = new int[size];
+        claimCell = new int[4 * size];
+        claimBest = new int[4 * size];
+        claimRound = new int[4 * size];
+        claimTie = new boolean[4 * size];
+        claimGranted = new boolean[4 * size];
+    }
+
+    // claim of the cell in this tick, added unclaimed on first sight. claimOfCell is never cleared,
+    // an entry only counts when the claim it points to is one of this tick's and names the cell
+    private int claimOf(int cell) {
+        int claim = claimOfCell[cell];
+        if (claim < claimCount && claimCell[claim] == cell) {
+            return claim;
+        }
+        claim = claimCount++;
+        claimOfCell[cell] = claim;
+        claimCell[claim] = cell;
+        claimRound[claim] = 0;
+        claimGranted[claim] = false;
+        return claim;
+    }
+
+    // first step of every ai snake, -1 for the player and for snakes without a path
+    private int[] planAll(List<Snake> moving) {
+        int[] planned = new int[moving.size()];
+        Arrays.fill(planned, -1);
+        List<Callable<Integer>> tasks = new ArrayList<>(moving.size());
+        List<Integer> slots = new ArrayList<>(moving.size());
+        for (int i = 0; i < moving.size(); i++) {
+            Snake snake = moving.get(i);
+            if (snake.algorithm == null) continue;
+            preparePlanner(snake);
+            slots.add(i);
+            tasks.add(() -> {
+                Pathfinder finder = sparePathfinders.poll();
+                if (finder == null) {
+                    finder = new Pathfinder(occupancy);
+                }
+                try {
+                    return planStep(snake, finder);
+                } finally {
+                    sparePathfinders.offer(finder);
+                }
+            });
+        }
+        if (clusterGraph != null) {
+            clusterGraph.rebuildDirty(); // hpa searches on the pool may only read the graph
+        }
+
+        occupancy.freeze(true);
+        try {
+            if (tasks.size() == 1) {
+                planned[slots.get(0)] = tasks.get(0).call();
+            } else if (!tasks.isEmpty()) {
+                List<Future<Integer>> results = planningPool.invokeAll(tasks);
+                for (int k = 0; k < results.size(); k++) {
+                    planned[slots.get(k)] = results.get(k).get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while planning", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("planning failed", e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException("planning failed", e);
+        } finally {
+            occupancy.freeze(false);
+        }
+        return planned;
+    }
+
+    // cells the snake could move to this tick in order of preference, free on the current board,
+    // written to out from offset. returns how many, at most four
+    private int moveOptions(Snake snake, int planned, int[] out, int offset) {
+        int head = snake.getHeadCell();
+        int straight = head + snake.direction;
+        int count = 0;
+        if (snake.algorithm == null) {
+            if (!willCollide(snake, straight)) {
+                out[offset + count++] = straight;
+            }
+            return count;
+        }
+        int[] turns = possibleTurns(snake.direction);
+        for (int c = 0; c < 4; c++) {
+            int cell = c == 0 ? planned : c == 1 ? straight : head + turns[c - 2];
+            if (cell < 0 || willCollide(snake, cell)) continue;
+            boolean seen = false;
+            for (int k = 0; k < count; k++) {
+                seen |= out[offset + k] == cell;
+            }
+            if (!seen) {
+                out[offset + count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    // first cell of the snake's path to the nearest eatable, -1 when there is none
+    private int planStep(Snake snake, Pathfinder pathfinder) {
+        if (sharedField) {
+            return distanceField.nextStep(snake);
+        }
+
+        int target = targetFor(snake);
+        if (target < 0) {
+            return -1;
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        pathfinder.deadline = snakeBudgetNanos > 0 ? System.nanoTime() + snakeBudgetNanos : Long.MAX_VALUE;
+        pathfinder.deadlineHit = false;
+        int pathLength;
+        int[] path;
+        if (snake.algorithm == PathAlgorithm.ASTAR) {
+            pathLength = pathfinder.aStar(snake, target, snake.optimal);
+            path = pathfinder.path;
+        } else if (snake.algorithm == PathAlgorithm.BFS) {
+            pathLength = pathfinder.bfs(snake, target, snake.optimal);
+            path = pathfinder.path;
+        } else if (snake.algorithm == PathAlgorithm.DIJKSTRA) {
+            pathLength = pathfinder.dijkstra(snake, target, snake.optimal);
+            path = pathfinder.path;
+        } else if (snake.algorithm == PathAlgorithm.JPS) {
+            pathLength = pathfinder.jps(snake, target, snake.optimal);
+            path = pathfinder.path;
+        } else if (snake.algorithm == PathAlgorithm.DSTAR_LITE) {
+            DStarLite planner = incrementalPlanner(snake);
+            pathLength = planner.plan(snake, target);
+            path = planner.path;
+        } else if (snake.algorithm == PathAlgorithm.HPA) {
+            pathLength = pathfinder.hpa(snake, target, snake.optimal, clusterGraph);
+            path = pathfinder.path;
+        } else if (snake.algorithm == PathAlgorithm.LOOKAHEAD) {
+            Lookahead lookahead = lookaheads.get(snake);
+            pathLength = lookahead.plan(this, snake, pathfinder.deadline);
+            path = lookahead.path;
+            pathfinder.deadlineHit = lookahead.deadlineHit;
+        } else {
+            pathLength = 0;
+            path = pathfinder.path;
+        }
+        if (pathfinder.deadlineHit) {
+            deadlineHits.increment();
+        }
+        if (Metrics.ENABLED) {
+            recordSearch(snake, pathfinder, System.nanoTime() - start, pathLength);
+        }
+        return pathLength > 0 ? path[0] : -1;
+    }
+
+    private void recordSearch(Snake snake, Pathfinder pathfinder, long nanos, int pathLength) {
+        if (snake.algorithm == PathAlgorithm.DSTAR_LITE) {
+            DStarLite planner = incrementalPlanner(snake);
+            Metrics.search(snake.algorithm).record(nanos, planner.expansions, planner.maxFrontier, pathLength, false);
+        } else if (snake.algorithm == PathAlgorithm.LOOKAHEAD) {
+            // playouts stand in for expansions
+            Metrics.search(snake.algorithm).record(nanos, lookaheads.get(snake).rollouts, 0, pathLength,
+                    pathfinder.deadlineHit);
+        } else {
+            Metrics.search(snake.algorithm).record(nanos, pathfinder.expansions, pathfinder.maxFrontier, pathLength,
+                    pathfinder.deadlineHit);
+        }
+    }
+
+    // state planStep needs that is not safe to create or update from the planning pool, done on
+    // the ticking thread before the snake plans
+    private void preparePlanner(Snake snake) {
+        if (snake.algorithm == PathAlgorithm.DSTAR_LITE) {
+            incrementalPlanner(snake);
+        } else if (snake.algorithm == PathAlgorithm.HPA) {
+            clusterGraph().update();
+        } else if (snake.algorithm == PathAlgorithm.LOOKAHEAD) {
+            lookaheads.computeIfAbsent(snake, s -> new Lookahead());
+        }
+    }
+
+    // incremental planners keep their search tree between ticks, so each snake has its own
+    DStarLite incrementalPlanner(Snake snake) {
+        return incrementalPlanners.computeIfAbsent(snake, s -> new DStarLite(occupancy));
+    }
+
+    ClusterGraph clusterGraph() {
+        if (clusterGraph == null) {
+            clusterGraph = new ClusterGraph(occupancy);
+        }
+        return clusterGraph;
+    }
+
+    DistanceField distanceField() {
+        if (distanceField == null) {
+            distanceField = new DistanceField(occupancy);
+        }
+        return distanceField;
+    }
+
+    // the border is wall in the occupancy grid, so stepping off the board counts as blocked too
+    private boolean willCollide(Snake currentSnake, int nextCell){
+        return occupancy.isBlocked(nextCell, currentSnake);
+    }
+
+    // perpendicular directions, the straight one was already tried by the caller
+    private int[] possibleTurns(int currentDirection) {
+        return currentDirection == 1 || currentDirection == -1 ? verticalTurns : horizontalTurns;
+    }
+
+    private void moveSteeredSnake(Snake snake, List<Snake> snakesToRemove) {
+        int newHead = snake.getHeadCell() + snake.direction;
+        if (willCollide(snake, newHead)) {
+            snakesToRemove.add(snake);
+            if (recorder != null) {
+                recorder.step(snake, false, false, -1);
+            }
+            if (snake == playerSnake) {
+                playerSnake = null;
+            }
+        } else {
+            snake.move();
+            Eatable eaten = eatableAt(snake.getHeadCell());
+            int spawned = eaten == null ? -1 : eat(snake, eaten);
+            if (recorder != null) {
+                recorder.step(snake, true, eaten != null, spawned);
+            }
+        }
+    }
+
+    // turns the player snake a quarter to the right or left, ignored once the player is dead
+    public void turnPlayer(boolean right) {
+        if (playerSnake == null) return;
+        playerSnake.turn(right);
+    }
+}
@@ -0,0 +1,15 @@
+package com.AlgorithmSnake;
+
+// receives a game as it is played: the state once when recording starts, then every tick as the
+// steps of the snakes in tick order, with a keyframe of the whole state every
+// ReplayWriter.KEYFRAME_INTERVAL ticks. ReplayWriter puts it in a file, BotServer sends it to bots
+interface GameRecorder {
+    void begin(GameEngine engine);
+
+    void beginTick();
+
+    // spawned is the cell the eaten eatable went to, -1 when the board was full
+    void step(Snake snake, boolean moved, boolean ate, int spawned);
+
+    void keyframe(GameEngine engine);
+}
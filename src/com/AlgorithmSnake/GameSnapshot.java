@@ -0,0 +1,63 @@
+package com.AlgorithmSnake;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// immutable copy of the engine state after a tick, safe to keep around while the engine moves on
+// snake bodies are copied as packed cells, x and y turn them back into board coordinates
+final class GameSnapshot {
+    final int tick;
+    final boolean gameOver;
+    final List<Point> eatables;
+    final List<SnakeState> snakes;
+    private final int shift;
+
+    GameSnapshot(GameEngine engine) {
+        this.shift = engine.occupancy.shift;
+        this.tick = engine.getTicks();
+        this.gameOver = engine.isOver();
+        List<Point> eatables = new ArrayList<>(engine.eatables.size());
+        for (Eatable eatable : engine.eatables) {
+            eatables.add(new Point(eatable.position));
+        }
+        this.eatables = Collections.unmodifiableList(eatables);
+        List<SnakeState> states = new ArrayList<>(engine.snakes.size());
+        for (Snake snake : engine.snakes) {
+            states.add(new SnakeState(snake));
+        }
+        this.snakes = Collections.unmodifiableList(states);
+    }
+
+    int x(int cell) {
+        return cell & ((1 << shift) - 1);
+    }
+
+    int y(int cell) {
+        return cell >>> shift;
+    }
+
+    // one snake as it was at the time of the snapshot, algorithm is null for the player
+    static final class SnakeState {
+        final PathAlgorithm algorithm;
+        final int score;
+        private final int[] body; // head first
+
+        SnakeState(Snake snake) {
+            this.algorithm = snake.algorithm;
+            this.score = snake.score;
+            this.body = new int[snake.length()];
+            for (int i = 0; i < body.length; i++) {
+                body[i] = snake.cellAt(i);
+            }
+        }
+
+        int length() {
+            return body.length;
+        }
+
+        int cellAt(int i) {
+            return body[i];
+        }
+    }
+}
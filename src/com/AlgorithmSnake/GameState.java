@@ -0,0 +1,517 @@
+package com.AlgorithmSnake;
+import java.util.Arrays;
+import java.util.List;
+
+// game state for lookahead rollouts that forks and resets in microseconds. the board is the
+// occupancy bitset itself, read only, with a copy on write layer on top: a write copies the word
+// into a small open addressing table owned by the fork and later reads find it there. so a fork
+// costs the words its rollouts touch and not the size of the board. snake bodies are rings of
+// cells inside one int array, each ring has room for the body plus one cell per move of the
+// deepest rollout, so moves only ever write below the starting body and reset only has to put
+// back head, length, growth and direction per snake.
+// only snakes near the one planning are in the state, the rest stay where they are as walls.
+// snakes move like they do in the engine: in turn like GameEngine.moveInTurn, or with parallel
+// planning all at once through moveAll. an eatable taken in a rollout is gone for the rest of it, and a grown snake keeps its tail in place for a move instead of doubling it.
+// the occupancy must not change while forks of the state are in use.
+final class GameState {
+    private static final int NO_KEY = -1;
+    final int stride;
+    final int shift;
+    private final long[] base; // the occupancy words, never written
+    private final int[] food; // eatable cells
+    private final int[] foodKeys; // open addressing from eatable cell to its index, NO_KEY when empty
+    private final int[] foodIndex;
+    final int snakeCount;
+    final int self; // index of the planning snake
+    final boolean simultaneous; // the engine moves every snake at once, see moveAll
+    private final int[] ringStart;
+    private final int[] ringMask;
+    private final int[] startLength;
+    private final int[] startGrow;
+    private final int[] startDirection;
+    // per fork
+    private final int[] cells;
+    private final int[] head; // ring index of the head
+    private final int[] length;
+    private final int[] grow; // moves left during which the tail stays
+    private final int[] direction;
+    private final boolean[] alive;
+    private final boolean[] dying; // crashed this tick, the body goes at the end of it
+    private final boolean[] taken; // per eatable
+    final int[] eaten; // eatables taken since the fork or the last reset, per snake
+    int firstMeal = -1; // tick of the self snake's first eatable since the reset, -1 for none
+    int tick = 0;
+    private int[] keys; // word index per slot, NO_KEY when empty
+    private long[] words;
+    private int[] usedSlots;
+    private int used = 0;
+    private int[] seenKeys = new int[64]; // scratch for room
+    private int[] seenQueue = new int[64];
+    // scratch for moveAll: claimed cells by open addressing, per slot the snake ahead in the
+    // round's contest, whether it is a tie and whether the cell went to a snake
+    private final int[] claimCells;
+    private final int[] claimBest;
+    private final int[] claimRound;
+    private final boolean[] claimTie;
+    private final boolean[] claimGranted;
+    private final int[] proposal; // cell snake s wants in the current round, -1 for none
+    private final int[] nextOption;
+    private final int[] choice;
+
+    // the snakes whose heads lie within radius steps of the planning snake, in engine order,
+    // headroom is the most moves a rollout will play
+    GameState(GameEngine engine, Snake planning, int headroom, int radius) {
+        Occupancy occupancy = engine.occupancy;
+        this.stride = occupancy.stride;
+        this.shift = occupancy.shift;
+        this.base = occupancy.words();
+        this.food = engine.eatableCells();
+        this.foodKeys = new int[Integer.highestOneBit(food.length * 2 + 1) << 1];
+        this.foodIndex = new int[foodKeys.length];
+        Arrays.fill(foodKeys, NO_KEY);
+        for (int i = 0; i < food.length; i++) {
+            int slot = hash(food[i]) & (foodKeys.length - 1);
+            while (foodKeys[slot] != NO_KEY) {
+                slot = (slot + 1) & (foodKeys.length - 1);
+            }
+            foodKeys[slot] = food[i];
+            foodIndex[slot] = i;
+        }
+        List<Snake> snakes = engine.snakes;
+        int planningHead = planning.getHeadCell();
+        int[] picked = new int[snakes.size()];
+        int count = 0;
+        int selfIndex = -1;
+        for (int i = 0; i < snakes.size(); i++) {
+            Snake snake = snakes.get(i);
+            if (snake == planning) {
+                selfIndex = count;
+            } else if (distance(snake.getHeadCell(), planningHead) > radius) {
+                continue;
+            }
+            picked[count++] = i;
+        }
+        this.snakeCount = count;
+        this.self = selfIndex;
+        this.simultaneous = engine.parallelPlanning;
+        this.ringStart = new int[count];
+        this.ringMask = new int[count];
+        this.startLength = new int[count];
+        this.startGrow = new int[count];
+        this.startDirection = new int[count];
+        int total = 0;
+        for (int s = 0; s < count; s++) {
+            Snake snake = snakes.get(picked[s]);
+            int capacity = Integer.highestOneBit(snake.length() + headroom) << 1;
+            ringStart[s] = total;
+            ringMask[s] = capacity - 1;
+            total += capacity;
+        }
+        this.cells = new int[total];
+        for (int s = 0; s < count; s++) {
+            Snake snake = snakes.get(picked[s]);
+            // a doubled tail is growth that has not shown yet
+            int bodyLength = snake.length();
+            while (bodyLength > 1 && snake.cellAt(bodyLength - 1) == snake.cellAt(bodyLength - 2)) {
+                bodyLength--;
+                startGrow[s]++;
+            }
+            for (int i = 0; i < bodyLength; i++) {
+                cells[ringStart[s] + i] = snake.cellAt(i);
+            }
+            startLength[s] = bodyLength;
+            startDirection[s] = snake.direction;
+        }
+        this.head = new int[count];
+        this.length = new int[count];
+        this.grow = new int[count];
+        this.direction = new int[count];
+        this.alive = new boolean[count];
+        this.dying = new boolean[count];
+        this.taken = new boolean[food.length];
+        this.eaten = new int[count];
+        this.keys = new int[256];
+        Arrays.fill(keys, NO_KEY);
+        this.words = new long[keys.length];
+        this.usedSlots = new int[keys.length / 2];
+        this.claimCells = new int[Integer.highestOneBit(6 * snakeCount + 1) << 1];
+        this.claimBest = new int[claimCells.length];
+        this.claimRound = new int[claimCells.length];
+        this.claimTie = new boolean[claimCells.length];
+        this.claimGranted = new boolean[claimCells.length];
+        this.proposal = new int[snakeCount];
+        this.nextOption = new int[snakeCount];
+        this.choice = new int[snakeCount];
+        reset();
+    }
+
+    // copy of the state as it was at the fork point of this one, shares the board and the eatables
+    private GameState(GameState origin) {
+        this.stride = origin.stride;
+        this.shift = origin.shift;
+        this.base = origin.base;
+        this.food = origin.food;
+        this.foodKeys = origin.foodKeys;
+        this.foodIndex = origin.foodIndex;
+        this.snakeCount = origin.snakeCount;
+        this.self = origin.self;
+        this.simultaneous = origin.simultaneous;
+        this.ringStart = origin.ringStart;
+        this.ringMask = origin.ringMask;
+        this.startLength = origin.startLength;
+        this.startGrow = origin.startGrow;
+        this.startDirection = origin.startDirection;
+        this.cells = origin.cells.clone();
+        this.head = new int[snakeCount];
+        this.length = new int[snakeCount];
+        this.grow = new int[snakeCount];
+        this.direction = new int[snakeCount];
+        this.alive = new boolean[snakeCount];
+        this.dying = new boolean[snakeCount];
+        this.taken = new boolean[food.length];
+        this.eaten = new int[snakeCount];
+        this.keys = new int[256];
+        Arrays.fill(keys, NO_KEY);
+        this.words = new long[keys.length];
+        this.usedSlots = new int[keys.length / 2];
+        this.claimCells = new int[Integer.highestOneBit(6 * snakeCount + 1) << 1];
+        this.claimBest = new int[claimCells.length];
+        this.claimRound = new int[claimCells.length];
+        this.claimTie = new boolean[claimCells.length];
+        this.claimGranted = new boolean[claimCells.length];
+        this.proposal = new int[snakeCount];
+        this.nextOption = new int[snakeCount];
+        this.choice = new int[snakeCount];
+        reset();
+    }
+
+    // an independent state at the fork point, one per thread that runs rollouts
+    GameState fork() {
+        return new GameState(this);
+    }
+
+    // back to the fork point, costs the words and snakes the last rollout touched
+    void reset() {
+        for (int i = 0; i < used; i++) {
+            keys[usedSlots[i]] = NO_KEY;
+        }
+        used = 0;
+        Arrays.fill(head, 0);
+        System.arraycopy(startLength, 0, length, 0, snakeCount);
+        System.arraycopy(startGrow, 0, grow, 0, snakeCount);
+        System.arraycopy(startDirection, 0, direction, 0, snakeCount);
+        Arrays.fill(alive, true);
+        Arrays.fill(eaten, 0);
+        Arrays.fill(taken, false);
+        firstMeal = -1;
+        tick = 0;
+    }
+
+    boolean isAlive(int s) {
+        return alive[s];
+    }
+
+    int length(int s) {
+        return length[s];
+    }
+
+    int headOf(int s) {
+        return cells[ringStart[s] + head[s]];
+    }
+
+    int direction(int s) {
+        return direction[s];
+    }
+
+    private int tailOf(int s) {
+        return cells[ringStart[s] + ((head[s] + length[s] - 1) & ringMask[s])];
+    }
+
+    boolean isSet(int cell) {
+        return (word(cell >>> 6) & (1L << cell)) != 0;
+    }
+
+    // true when snake s cannot step on the cell, its own tail is free unless it is growing
+    boolean isBlocked(int s, int cell) {
+        return isSet(cell) && (cell != tailOf(s) || grow[s] > 0);
+    }
+
+    // the three cells snake s can move to, straight ahead first, blocked ones included
+    void candidates(int s, int[] out) {
+        int h = headOf(s);
+        int d = direction[s];
+        int side = d == 1 || d == -1 ? stride : 1;
+        out[0] = h + d;
+        out[1] = h + side;
+        out[2] = h - side;
+    }
+
+    // moves snake s one step onto a free cell, taking the eatable there
+    void move(int s, int cell) {
+        if (grow[s] > 0) {
+            grow[s]--;
+            length[s]++;
+        } else {
+            clearBit(tailOf(s));
+        }
+        direction[s] = cell - headOf(s);
+        head[s] = (head[s] - 1) & ringMask[s];
+        cells[ringStart[s] + head[s]] = cell;
+        setBit(cell);
+        int meal = foodAt(cell);
+        if (meal >= 0) {
+            taken[meal] = true;
+            grow[s]++;
+            eaten[s]++;
+            if (s == self && firstMeal < 0) {
+                firstMeal = tick;
+            }
+        }
+    }
+
+    // moves every living snake at once like GameEngine.moveSimultaneously. options holds up to
+    // three cells per snake from 3 * s in order of preference, all free before the tick, and
+    // optionCount how many. in rounds a cell wanted by one snake is granted, a contested one goes
+    // to the strictly longest snake and on a tie to nobody, losers move on to their next option.
+    // snakes left without a cell crash
+    void moveAll(int[] options, int[] optionCount) {
+        Arrays.fill(claimCells, NO_KEY);
+        Arrays.fill(nextOption, 0);
+        Arrays.fill(choice, -1);
+        int round = 0;
+        boolean proposed = true;
+        while (proposed) {
+            proposed = false;
+            round++;
+            for (int s = 0; s < snakeCount; s++) {
+                proposal[s] = -1;
+                if (!alive[s] || choice[s] >= 0) {
+                    continue;
+                }
+                while (nextOption[s] < optionCount[s] && claimGranted[claimSlot(options[3 * s + nextOption[s]])]) {
+                    nextOption[s]++;
+                }
+                if (nextOption[s] == optionCount[s]) {
+                    continue;
+                }
+                int cell = options[3 * s + nextOption[s]];
+                int slot = claimSlot(cell);
+                proposal[s] = cell;
+                proposed = true;
+                if (claimRound[slot] != round) {
+                    claimRound[slot] = round;
+                    claimBest[slot] = s;
+                    claimTie[slot] = false;
+                } else {
+                    int best = claimBest[slot];
+                    int difference = length[s] + grow[s] - length[best] - grow[best];
+                    if (difference > 0) {
+                        claimBest[slot] = s;
+                        claimTie[slot] = false;
+                    } else if (difference == 0) {
+                        claimTie[slot] = true;
+                    }
+                }
+            }
+            for (int s = 0; s < snakeCount; s++) {
+                if (proposal[s] < 0) {
+                    continue;
+                }
+                int slot = claimSlot(proposal[s]);
+                if (claimBest[slot] == s && !claimTie[slot]) {
+                    choice[s] = proposal[s];
+                    claimGranted[slot] = true;
+                } else {
+                    nextOption[s]++;
+                }
+            }
+        }
+        for (int s = 0; s < snakeCount; s++) {
+            if (!alive[s]) {
+                continue;
+            }
+            if (choice[s] >= 0) {
+                move(s, choice[s]);
+            } else {
+                crash(s);
+            }
+        }
+    }
+
+    // slot of the cell in the claim table, added unclaimed when it is not in there yet
+    private int claimSlot(int cell) {
+        int mask = claimCells.length - 1;
+        int slot = hash(cell) & mask;
+        while (claimCells[slot] != NO_KEY) {
+            if (claimCells[slot] == cell) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        claimCells[slot] = cell;
+        claimRound[slot] = 0;
+        claimGranted[slot] = false;
+        return slot;
+    }
+
+    // snake s crashed, its body stays in the way until the tick ends
+    void crash(int s) {
+        alive[s] = false;
+        dying[s] = true;
+    }
+
+    // clears the bodies of the snakes that crashed this tick
+    void endTick() {
+        for (int s = 0; s < snakeCount; s++) {
+            if (dying[s]) {
+                dying[s] = false;
+                for (int i = 0; i < length[s]; i++) {
+                    clearBit(cells[ringStart[s] + ((head[s] + i) & ringMask[s])]);
+                }
+            }
+        }
+        tick++;
+    }
+
+    // eatable not yet taken that is closest to the cell by manhattan distance, -1 when none is left
+    int nearestFood(int cell) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < food.length; i++) {
+            if (!taken[i]) {
+                int d = distance(cell, food[i]);
+                if (d < bestDistance) {
+                    best = food[i];
+                    bestDistance = d;
+                }
+            }
+        }
+        return best;
+    }
+
+    int distance(int a, int b) {
+        return Math.abs((a & (stride - 1)) - (b & (stride - 1))) + Math.abs((a >>> shift) - (b >>> shift));
+    }
+
+    // free cells reachable from the head of snake s, counted up to limit
+    int room(int s, int limit) {
+        int capacity = Integer.highestOneBit(Math.max(limit, 8) * 4) << 1;
+        if (seenKeys.length < capacity) {
+            seenKeys = new int[capacity];
+            seenQueue = new int[capacity];
+        }
+        Arrays.fill(seenKeys, 0, capacity, NO_KEY);
+        int mask = capacity - 1;
+        int start = headOf(s);
+        int tail = grow[s] > 0 ? -1 : tailOf(s);
+        int queued = 0;
+        int next = 0;
+        seenQueue[queued++] = start;
+        addSeen(start, mask);
+        int count = 0;
+        while (next < queued && count < limit) {
+            int cell = seenQueue[next++];
+            count++;
+            for (int k = 0; k < 4 && queued < capacity / 2; k++) {
+                int neighbor = cell + (k == 0 ? 1 : k == 1 ? -1 : k == 2 ? stride : -stride);
+                if ((!isSet(neighbor) || neighbor == tail) && addSeen(neighbor, mask)) {
+                    seenQueue[queued++] = neighbor;
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean addSeen(int cell, int mask) {
+        int slot = hash(cell) & mask;
+        while (seenKeys[slot] != NO_KEY) {
+            if (seenKeys[slot] == cell) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        seenKeys[slot] = cell;
+        return true;
+    }
+
+    // index of an eatable on the cell that is still there, -1 for none
+    private int foodAt(int cell) {
+        int mask = foodKeys.length - 1;
+        for (int slot = hash(cell) & mask; foodKeys[slot] != NO_KEY; slot = (slot + 1) & mask) {
+            if (foodKeys[slot] == cell) {
+                return taken[foodIndex[slot]] ? -1 : foodIndex[slot];
+            }
+        }
+        return -1;
+    }
+
+    private long word(int index) {
+        int mask = keys.length - 1;
+        for (int slot = hash(index) & mask; ; slot = (slot + 1) & mask) {
+            int key = keys[slot];
+            if (key == index) {
+                return words[slot];
+            }
+            if (key == NO_KEY) {
+                return base[index];
+            }
+        }
+    }
+
+    private void setBit(int cell) {
+        int slot = slotFor(cell >>> 6);
+        words[slot] |= 1L << cell;
+    }
+
+    private void clearBit(int cell) {
+        int slot = slotFor(cell >>> 6);
+        words[slot] &= ~(1L << cell);
+    }
+
+    // slot holding the fork's copy of a word, copied from the board on first write
+    private int slotFor(int index) {
+        if (used == usedSlots.length) {
+            rehash();
+        }
+        int mask = keys.length - 1;
+        int slot = hash(index) & mask;
+        while (keys[slot] != NO_KEY) {
+            if (keys[slot] == index) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = index;
+        words[slot] = base[index];
+        usedSlots[used++] = slot;
+        return slot;
+    }
+
+    // doubles the table, kept at most half full
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldWords = words;
+        int[] oldSlots = usedSlots;
+        int oldUsed = used;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, NO_KEY);
+        words = new long[keys.length];
+        usedSlots = new int[keys.length / 2];
+        used = 0;
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldUsed; i++) {
+            int index = oldKeys[oldSlots[i]];
+            int slot = hash(index) & mask;
+            while (keys[slot] != NO_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = index;
+            words[slot] = oldWords[oldSlots[i]];
+            usedSlots[used++] = slot;
+        }
+    }
+
+    private static int hash(int key) {
+        return key * 0x9E3779B1 >>> 7;
+    }
+}
@@ -0,0 +1,71 @@
+package com.AlgorithmSnake;
+import java.util.Arrays;
+
+// binary min heap of int cells ordered by keys[cell], read live like the comparator of the old
+// PriorityQueue<Node>. sift rules mirror java.util.PriorityQueue so ties come out in the same order.
+final class IntHeap {
+    private int[] heap;
+    private int[] keys;
+    private int size;
+
+    IntHeap(int capacity) {
+        heap = new int[capacity];
+    }
+
+    void clear(int[] keys) {
+        this.keys = keys;
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(int cell) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int k = size++;
+        int key = keys[cell];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            int e = heap[parent];
+            if (key >= keys[e]) {
+                break;
+            }
+            heap[k] = e;
+            k = parent;
+        }
+        heap[k] = cell;
+    }
+
+    int poll() {
+        int result = heap[0];
+        int n = --size;
+        if (n > 0) {
+            int x = heap[n];
+            int key = keys[x];
+            int k = 0;
+            int half = n >>> 1;
+            while (k < half) {
+                int child = (k << 1) + 1;
+                int c = heap[child];
+                int right = child + 1;
+                if (right < n && keys[c] > keys[heap[right]]) {
+                    c = heap[child = right];
+                }
+                if (key <= keys[c]) {
+                    break;
+                }
+                heap[k] = c;
+                k = child;
+            }
+            heap[k] = x;
+        }
+        return result;
+    }
+}
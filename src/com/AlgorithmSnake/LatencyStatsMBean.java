@@ -0,0 +1,12 @@
+package com.AlgorithmSnake;
+
+// jmx view of one LatencyStats, times are in microseconds
+public interface LatencyStatsMBean {
+    long getCount();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getMaxMicros();
+    void reset();
+}
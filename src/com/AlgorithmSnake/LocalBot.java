@@ -0,0 +1,138 @@
+package com.AlgorithmSnake;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// stand-in for an outside bot, speaks the BotServer protocol over a blocking socket on its own
+// thread. it keeps a mirror of the game by applying every frame with ReplayReader, so it sees
+// nothing a bot in another language could not, and answers with the first step of an a* path to
+// the nearest eatable, or the first free direction straight ahead first when there is none.
+class LocalBot {
+    private final InetSocketAddress address;
+    private final Thread thread;
+    private ByteBuffer message = ByteBuffer.allocate(256);
+    private final ByteBuffer reply = ByteBuffer.allocate(BotServer.REPLY_SIZE);
+    private int id;
+    private int width;
+    private int height;
+    private long seed;
+    private GameEngine mirror;
+    private Pathfinder pathfinder; // over the mirror's occupancy, replaced with it on every keyframe
+    private Snake self; // null once it died
+    private int tick;
+
+    LocalBot(InetSocketAddress address) {
+        this.address = address;
+        thread = new Thread(this::run, "local bot");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    private void run() {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            while (true) {
+                ByteBuffer in = receive(channel);
+                byte type = in.get(0);
+                if (type == BotServer.HELLO) {
+                    in.get();
+                    id = in.getInt();
+                    width = in.getInt();
+                    height = in.getInt();
+                    seed = in.getLong();
+                } else if (type == BotServer.OVER) {
+                    return;
+                } else {
+                    apply(in);
+                    if (self != null) {
+                        answer(channel);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("local bot " + id + " failed: " + e.getMessage());
+        }
+    }
+
+    private ByteBuffer receive(SocketChannel channel) throws IOException {
+        message.clear().limit(4);
+        readFully(channel, message);
+        int length = message.getInt(0);
+        if (length > message.capacity()) {
+            message = ByteBuffer.allocate(Math.max(length, 2 * message.capacity()));
+        }
+        message.clear().limit(length);
+        readFully(channel, message);
+        return message.flip();
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("server closed the connection");
+            }
+        }
+    }
+
+    // the records of a frame, a keyframe replaces the mirror and a tick advances it
+    private void apply(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte record = in.get();
+            if (record == ReplayWriter.KEYFRAME) {
+                tick = in.getInt();
+                mirror = ReplayReader.readKeyframe(in, ReplayWriter.VERSION, seed, width, height);
+                pathfinder = new Pathfinder(mirror.occupancy);
+                self = null;
+                for (Snake snake : mirror.snakes) {
+                    if (snake.id == id) {
+                        self = snake;
+                    }
+                }
+            } else if (record == ReplayWriter.TICK) {
+                tick++;
+                ReplayReader.applyTick(mirror, in, tick);
+                if (self != null && self.diedAt >= 0) {
+                    self = null;
+                }
+            } else {
+                throw new IllegalStateException("unknown record " + record + " at tick " + tick);
+            }
+        }
+    }
+
+    private void answer(SocketChannel channel) throws IOException {
+        int head = self.getHeadCell();
+        int next = -1;
+        int target = mirror.targetFor(self);
+        if (target >= 0 && pathfinder.aStar(self, target, false) > 0) {
+            next = pathfinder.path[0];
+        }
+        if (next < 0 || mirror.occupancy.isBlocked(next, self)) {
+            int stride = mirror.occupancy.stride;
+            int straight = self.direction;
+            int[] choices = {straight, straight == 1 || straight == -1 ? stride : 1,
+                    straight == 1 || straight == -1 ? -stride : -1};
+            next = -1;
+            for (int direction : choices) {
+                if (!mirror.occupancy.isBlocked(head + direction, self)) {
+                    next = head + direction;
+                    break;
+                }
+            }
+            if (next < 0) {
+                return; // boxed in, straight on it is
+            }
+        }
+        reply.clear();
+        reply.putInt(tick + 1).put(ReplayWriter.directionIndex(next - head, mirror.occupancy.stride)).flip();
+        while (reply.hasRemaining()) {
+            channel.write(reply);
+        }
+    }
+}
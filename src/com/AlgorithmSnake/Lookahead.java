@@ -0,0 +1,261 @@
+package com.AlgorithmSnake;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// monte carlo lookahead for one snake. every move it can make now is tried in random playouts of
+// the next DEPTH ticks: the snakes nearby, this one too after its first move, head for their
+// nearest eatable and every so often take a random safe turn instead. they move the way the
+// engine moves them, in turn or with parallel planning all at once with contested cells. a playout is worth more
+// the longer the snake lives through it, the more room it has around its head at the end and the
+// sooner it eats. the moves share out the playouts by ucb1 and the best average is taken.
+// greedy paths walk into pockets a search to the eatable cannot see, a playout that ends boxed
+// in does see them. playouts run on forks of one GameState, with several threads every thread
+// plays its share on its own fork and the totals are added up in thread order, so as long as the
+// clock does not cut them short the choice only depends on the seed.
+class Lookahead {
+    static final int DEPTH = 20;
+    static final int RADIUS = 2 * DEPTH + 2; // snakes further away cannot get in the way in time
+    private static final int CLOCK_INTERVAL = 16; // playouts between looks at the clock
+    private static final int RANDOM_TURN = 8; // one move in this many is a random safe one
+    private static final double EXPLORATION = 0.4;
+    private static final int MAX_THREADS = 8;
+    final int[] path = new int[1];
+    int rollouts = 0; // playouts of the last plan
+    boolean deadlineHit = false; // the last plan was cut short by the clock
+
+    // first step for the snake, 1 with it in path[0] or 0 when every move crashes right away
+    int plan(GameEngine engine, Snake snake, long deadline) {
+        rollouts = 0;
+        deadlineHit = false;
+        GameState root = new GameState(engine, snake, DEPTH, RADIUS);
+        int[] moves = new int[3];
+        root.candidates(root.self, moves);
+        int count = 0;
+        for (int cell : moves.clone()) {
+            if (!root.isBlocked(root.self, cell)) {
+                moves[count++] = cell;
+            }
+        }
+        if (count <= 1) {
+            path[0] = moves[0];
+            return count;
+        }
+
+        // the planning pool is busy with the other snakes when they all plan at once
+        int threads = engine.parallelRollouts && !engine.parallelPlanning
+                ? Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()) : 1;
+        int budget = Math.max(engine.lookaheadRollouts, count);
+        long seed = engine.seed * 31 + (long) engine.getTicks() * 1_000_003 + snake.id;
+        List<Playouts> shares = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int quota = budget / threads + (t < budget % threads ? 1 : 0);
+            shares.add(new Playouts(t == 0 ? root : root.fork(), moves, count, quota, deadline, seed + t));
+        }
+        if (threads == 1) {
+            shares.get(0).call();
+        } else {
+            try {
+                for (Future<Playouts> done : engine.planningPool.invokeAll(shares)) {
+                    done.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while looking ahead", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("lookahead failed", e.getCause());
+            }
+        }
+
+        double[] sum = new double[count];
+        int[] played = new int[count];
+        for (Playouts share : shares) {
+            for (int m = 0; m < count; m++) {
+                sum[m] += share.sum[m];
+                played[m] += share.played[m];
+            }
+            rollouts += share.total;
+            deadlineHit |= share.outOfTime;
+        }
+        int best = 0;
+        double bestValue = -1;
+        for (int m = 0; m < count; m++) {
+            double value = played[m] == 0 ? 0 : sum[m] / played[m];
+            if (value > bestValue) {
+                best = m;
+                bestValue = value;
+            }
+        }
+        path[0] = moves[best];
+        return 1;
+    }
+
+    // one thread's share of the playouts, on a fork of its own
+    private static final class Playouts implements Callable<Playouts> {
+        private final GameState state;
+        private final int[] moves;
+        private final int count;
+        private final int quota;
+        private final long deadline;
+        private final Random random;
+        private final int[] candidates = new int[3];
+        private final int[] options; // simultaneous moves, up to three cells per snake from 3 * s
+        private final int[] optionCount;
+        private final int startDistance; // to the nearest eatable before anyone moved
+        final double[] sum;
+        final int[] played;
+        int total = 0;
+        boolean outOfTime = false;
+
+        Playouts(GameState state, int[] moves, int count, int quota, long deadline, long seed) {
+            this.state = state;
+            this.moves = moves;
+            this.count = count;
+            this.quota = quota;
+            this.deadline = deadline;
+            this.random = new Random(seed);
+            int head = state.headOf(state.self);
+            int target = state.nearestFood(head);
+            this.startDistance = target < 0 ? 0 : state.distance(head, target);
+            this.sum = new double[count];
+            this.played = new int[count];
+            this.options = new int[3 * state.snakeCount];
+            this.optionCount = new int[state.snakeCount];
+        }
+
+        @Override
+        public Playouts call() {
+            for (int i = 0; i < quota; i++) {
+                if (i % CLOCK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                    outOfTime = true;
+                    break;
+                }
+                int move = select();
+                sum[move] += playout(moves[move]);
+                played[move]++;
+                total++;
+            }
+            return this;
+        }
+
+        // every move once, then the one with the best upper confidence bound
+        private int select() {
+            int best = 0;
+            double bestBound = -1;
+            for (int m = 0; m < count; m++) {
+                if (played[m] == 0) {
+                    return m;
+                }
+                double bound = sum[m] / played[m] + EXPLORATION * Math.sqrt(Math.log(total) / played[m]);
+                if (bound > bestBound) {
+                    best = m;
+                    bestBound = bound;
+                }
+            }
+            return best;
+        }
+
+        // value between 0 and 1 of one random future that starts with the move
+        private double playout(int first) {
+            state.reset();
+            int self = state.self;
+            for (int t = 0; t < DEPTH; t++) {
+                if (state.simultaneous) {
+                    // everybody picks on the board before the tick, then they all move at once
+                    for (int s = 0; s < state.snakeCount; s++) {
+                        if (state.isAlive(s)) {
+                            optionCount[s] = preferences(s, t == 0 && s == self ? first : -1);
+                        }
+                    }
+                    state.moveAll(options, optionCount);
+                } else {
+                    // the snakes before this one in the tick order have already moved
+                    for (int s = t == 0 ? self : 0; s < state.snakeCount; s++) {
+                        if (!state.isAlive(s)) {
+                            continue;
+                        }
+                        int cell = t == 0 && s == self ? first : choose(s);
+                        if (cell < 0) {
+                            state.crash(s);
+                        } else {
+                            state.move(s, cell);
+                        }
+                    }
+                }
+                state.endTick();
+                if (!state.isAlive(self)) {
+                    return 0.5 * t / DEPTH;
+                }
+            }
+            int length = state.length(self);
+            double room = Math.min(1.0, (double) state.room(self, length) / length);
+            double meal;
+            if (state.firstMeal >= 0) {
+                meal = 0.5 + 0.5 * Math.pow(0.9, state.firstMeal);
+            } else {
+                int head = state.headOf(self);
+                int target = state.nearestFood(head);
+                int closer = target < 0 ? 0 : startDistance - state.distance(head, target);
+                meal = 0.5 * Math.max(0, Math.min(DEPTH, closer)) / DEPTH;
+            }
+            return 0.5 + 0.3 * room + 0.2 * meal;
+        }
+
+        // options of snake s for a simultaneous tick from 3 * s: its pick, or fixed when that is not
+        // -1, then its other safe cells. returns how many
+        private int preferences(int s, int fixed) {
+            int pick = fixed >= 0 ? fixed : choose(s);
+            int safe = safeMoves(s);
+            int count = 0;
+            if (pick >= 0) {
+                options[3 * s + count++] = pick;
+            }
+            for (int k = 0; k < safe; k++) {
+                if (candidates[k] != pick) {
+                    options[3 * s + count++] = candidates[k];
+                }
+            }
+            return count;
+        }
+
+        // the cells snake s can move to without crashing, into the front of candidates
+        private int safeMoves(int s) {
+            state.candidates(s, candidates);
+            int safe = 0;
+            for (int k = 0; k < 3; k++) {
+                if (!state.isBlocked(s, candidates[k])) {
+                    candidates[safe++] = candidates[k];
+                }
+            }
+            return safe;
+        }
+
+        // safe move for snake s towards its nearest eatable, now and then a random one, -1 for none
+        private int choose(int s) {
+            int safe = safeMoves(s);
+            if (safe <= 1) {
+                return safe == 0 ? -1 : candidates[0];
+            }
+            if (random.nextInt(RANDOM_TURN) == 0) {
+                return candidates[random.nextInt(safe)];
+            }
+            int target = state.nearestFood(state.headOf(s));
+            if (target < 0) {
+                return candidates[0];
+            }
+            int best = candidates[0];
+            int bestDistance = state.distance(best, target);
+            for (int k = 1; k < safe; k++) {
+                int distance = state.distance(candidates[k], target);
+                if (distance < bestDistance || distance == bestDistance && random.nextBoolean()) {
+                    best = candidates[k];
+                    bestDistance = distance;
+                }
+            }
+            return best;
+        }
+    }
+}
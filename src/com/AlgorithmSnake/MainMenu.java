@@ -7,6 +7,9 @@ import java.awt.Color;
 public class MainMenu extends JPanel {
     private JFrame frame;
     private JComboBox<String> difficultyDropdown;
+    private JComboBox<String> boardSizeDropdown;
+    private JComboBox<String> snakeCountDropdown;
+    private JComboBox<String> foodCountDropdown;
 
     public MainMenu(JFrame frame) {
         this.frame = frame;
@@ -22,6 +25,15 @@ public class MainMenu extends JPanel {
         String[] difficulties = {"Slugg Fest", "Medium", "Deranged"};
         difficultyDropdown = new JComboBox<>(difficulties);
         difficultyDropdown.setSelectedIndex(1);
+        String[] boardSizes = {"100 x 100", "200 x 200", "500 x 500", "1000 x 1000", "4096 x 4096"};
+        boardSizeDropdown = new JComboBox<>(boardSizes);
+        boardSizeDropdown.setSelectedIndex(0);
+        String[] snakeCounts = {"1 each", "5 each", "25 each", "50 each"};
+        snakeCountDropdown = new JComboBox<>(snakeCounts);
+        snakeCountDropdown.setSelectedIndex(0);
+        String[] foodCounts = {"1 food", "10 food", "50 food"};
+        foodCountDropdown = new JComboBox<>(foodCounts);
+        foodCountDropdown.setSelectedIndex(0);
 
         simulationButton.addActionListener(e -> startGame(false));
         playButton.addActionListener(e -> startGame(true));
@@ -30,17 +42,24 @@ public class MainMenu extends JPanel {
         gbc.gridy = 0;
         add(difficultyDropdown, gbc);
         gbc.gridy = 1;
-        add(simulationButton, gbc);
+        add(boardSizeDropdown, gbc);
         gbc.gridy = 2;
-        add(playButton, gbc);
+        add(snakeCountDropdown, gbc);
         gbc.gridy = 3;
+        add(foodCountDropdown, gbc);
+        gbc.gridy = 4;
+        add(simulationButton, gbc);
+        gbc.gridy = 5;
+        add(playButton, gbc);
+        gbc.gridy = 6;
         add(exitButton, gbc);
     }
 
     private void startGame(boolean isPlayerMode) {
         int gameSpeed = getGameSpeedFromSelection();
         frame.getContentPane().removeAll();
-        AlgorithmSnake game = new AlgorithmSnake(isPlayerMode, gameSpeed);
+        AlgorithmSnake game = new AlgorithmSnake(isPlayerMode, gameSpeed, getBoardSizeFromSelection(),
+                leadingNumber(snakeCountDropdown), leadingNumber(foodCountDropdown));
         frame.add(game);
         frame.pack();
         frame.revalidate();
@@ -48,6 +67,15 @@ public class MainMenu extends JPanel {
         game.requestFocusInWindow();
     }
 
+    private int getBoardSizeFromSelection() {
+        return leadingNumber(boardSizeDropdown);
+    }
+
+    private static int leadingNumber(JComboBox<String> dropdown) {
+        String selection = (String) dropdown.getSelectedItem();
+        return Integer.parseInt(selection.substring(0, selection.indexOf(' ')));
+    }
+
     private int getGameSpeedFromSelection() {
         String selection = (String) difficultyDropdown.getSelectedItem();
         if ("Slugg Fest".equals(selection)) {
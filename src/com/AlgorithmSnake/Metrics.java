@@ -0,0 +1,105 @@
+package com.AlgorithmSnake;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// hot path metrics, off unless the jvm runs with -Dsnake.metrics=true. ENABLED is a constant,
+// so with metrics off the jit drops every guarded timing call and nothing is measured at all.
+// when on, the stats are registered as mbeans under com.AlgorithmSnake and
+// -Dsnake.metrics.dump=<seconds> also prints them to stderr on that period.
+final class Metrics {
+    static final boolean ENABLED = Boolean.getBoolean("snake.metrics");
+    static final LatencyStats TICK = new LatencyStats();
+    static final LatencyStats FRAME_UPDATE = new LatencyStats(); // board image update on the simulation thread
+    static final LatencyStats BLIT = new LatencyStats(); // drawing the board image on the swing thread
+    static final LatencyStats SPAWN = new LatencyStats();
+    static final LatencyStats FIELD = new LatencyStats(); // shared distance field updates
+    private static final Map<PathAlgorithm, SearchStats> SEARCHES = new EnumMap<>(PathAlgorithm.class);
+
+    static {
+        for (PathAlgorithm algorithm : PathAlgorithm.values()) {
+            SEARCHES.put(algorithm, new SearchStats());
+        }
+        if (ENABLED) {
+            register();
+            long period = Long.getLong("snake.metrics.dump", 0);
+            if (period > 0) {
+                startDump(period, System.err);
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    static SearchStats search(PathAlgorithm algorithm) {
+        return SEARCHES.get(algorithm);
+    }
+
+    private static Map<String, LatencyStats> timings() {
+        Map<String, LatencyStats> timings = new LinkedHashMap<>();
+        timings.put("tick", TICK);
+        timings.put("frame", FRAME_UPDATE);
+        timings.put("blit", BLIT);
+        timings.put("spawn", SPAWN);
+        timings.put("field", FIELD);
+        return timings;
+    }
+
+    private static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Map.Entry<PathAlgorithm, SearchStats> entry : SEARCHES.entrySet()) {
+                server.registerMBean(new StandardMBean(entry.getValue(), SearchStatsMBean.class),
+                        new ObjectName("com.AlgorithmSnake:type=Search,algorithm=" + entry.getKey()));
+            }
+            for (Map.Entry<String, LatencyStats> entry : timings().entrySet()) {
+                server.registerMBean(new StandardMBean(entry.getValue(), LatencyStatsMBean.class),
+                        new ObjectName("com.AlgorithmSnake:type=Timing,name=" + entry.getKey()));
+            }
+        } catch (JMException e) {
+            System.err.println("metrics not registered with jmx: " + e);
+        }
+    }
+
+    static void startDump(long periodSeconds, PrintStream out) {
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print(report()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-10s %9s %9s %9s %9s %9s %10s %9s %9s %8s %8s%n",
+                "search", "calls", "mean us", "p50 us", "p99 us", "max us", "expansions", "frontier", "path len", "no path",
+                "deadline"));
+        for (Map.Entry<PathAlgorithm, SearchStats> entry : SEARCHES.entrySet()) {
+            SearchStats s = entry.getValue();
+            if (s.getCount() == 0) continue;
+            sb.append(String.format("%-10s %9d %9.1f %9.1f %9.1f %9.1f %10.1f %9d %9.1f %8d %8d%n",
+                    entry.getKey(), s.getCount(), s.getMeanMicros(), s.getP50Micros(), s.getP99Micros(),
+                    s.getMaxMicros(), s.getMeanExpansions(), s.getMaxFrontier(), s.getMeanPathLength(), s.getNoPathCount(),
+                    s.getDeadlineHits()));
+        }
+        sb.append(String.format("%-10s %9s %9s %9s %9s %9s%n", "timing", "calls", "mean us", "p50 us", "p99 us", "max us"));
+        for (Map.Entry<String, LatencyStats> entry : timings().entrySet()) {
+            LatencyStats s = entry.getValue();
+            if (s.getCount() == 0) continue;
+            sb.append(String.format("%-10s %9d %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(), s.getCount(),
+                    s.getMeanMicros(), s.getP50Micros(), s.getP99Micros(), s.getMaxMicros()));
+        }
+        return sb.toString();
+    }
+}
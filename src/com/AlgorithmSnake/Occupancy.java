@@ -0,0 +1,182 @@
+package com.AlgorithmSnake;
+
+// bitset of every cell taken by a wall or a snake body, plus which snake owns it.
+// cells are indexed y * stride + x where stride is the width rounded up to a power of two,
+// so a cell index doubles as its bit index and x/y come back with a mask and a shift.
+// it listens to every snake body, so it stays up to date as they move, lookups are O(1).
+// it also keeps an index of the free playable cells for spawning: a dense array of the cells
+// plus each cell's slot in it, taking or freeing a cell swaps it with the last entry, so the
+// index follows the snakes in O(1) and a uniformly random free cell is a single array read.
+// eatables reserve their cell so they leave the index too and never land on each other.
+class Occupancy implements Snake.BodyListener {
+    static final int WALL = -1;
+    static final int MAX_SNAKE_ID = Short.MAX_VALUE;
+    final int width;
+    final int height;
+    final int shift;
+    final int stride;
+    private final long[] bits;
+    private final short[] owner; // snake id for body cells, WALL for walls and padding, 0 when free
+    private final int[] journal = new int[1 << 12]; // ring of the most recently changed cells
+    private final int[] freeCells; // free and unreserved playable cells, the first freeCount are valid
+    private final int[] freeSlot; // position of each cell in freeCells, -1 when it is not in there
+    private int freeCount = 0;
+    private long changeCount = 0;
+    private boolean frozen = false;
+
+    Occupancy(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.shift = 32 - Integer.numberOfLeadingZeros(Math.max(width - 1, 1));
+        this.stride = 1 << shift;
+        this.bits = new long[((height << shift) + 63) >>> 6];
+        this.owner = new short[height << shift];
+        this.freeCells = new int[(width - 2) * (height - 2)];
+        this.freeSlot = new int[height << shift];
+        java.util.Arrays.fill(freeSlot, -1);
+
+        // border walls and the padding columns right of the board are never free
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < stride; x++) {
+                if (x == 0 || y == 0 || x >= width - 1 || y == height - 1) {
+                    set(cell(x, y), WALL);
+                }
+            }
+        }
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                addFree(cell(x, y));
+            }
+        }
+    }
+
+    int cell(int x, int y) {
+        return (y << shift) | x;
+    }
+
+    int x(int cell) {
+        return cell & (stride - 1);
+    }
+
+    int y(int cell) {
+        return cell >>> shift;
+    }
+
+    boolean isSet(int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // the bitset itself for word parallel readers like BitboardFlood, never write to it
+    long[] words() {
+        return bits;
+    }
+
+    int ownerOf(int cell) {
+        return owner[cell];
+    }
+
+    // a frozen grid is the read only board snapshot parallel planners search, writes are a bug
+    void freeze(boolean frozen) {
+        this.frozen = frozen;
+    }
+
+    // walls are set once when the board is built and never change after that
+    void set(int cell, int id) {
+        checkWritable();
+        if (owner[cell] == WALL) {
+            throw new IllegalArgumentException("cell " + x(cell) + "," + y(cell) + " is a wall");
+        }
+        bits[cell >>> 6] |= 1L << cell;
+        owner[cell] = (short) id;
+        removeFree(cell);
+        journal[(int) changeCount++ & (journal.length - 1)] = cell;
+    }
+
+    void clear(int cell) {
+        checkWritable();
+        if (owner[cell] == WALL) {
+            throw new IllegalArgumentException("cell " + x(cell) + "," + y(cell) + " is a wall");
+        }
+        bits[cell >>> 6] &= ~(1L << cell);
+        owner[cell] = 0;
+        addFree(cell);
+        journal[(int) changeCount++ & (journal.length - 1)] = cell;
+    }
+
+    @Override
+    public void headEntered(Snake snake, int cell) {
+        set(cell, snake.id);
+    }
+
+    @Override
+    public void tailLeft(Snake snake, int cell) {
+        if (owner[cell] == snake.id) {
+            clear(cell);
+        }
+    }
+
+    int freeCount() {
+        return freeCount;
+    }
+
+    // uniformly random cell that is neither taken nor reserved, -1 when the board is full
+    int randomFreeCell(java.util.Random random) {
+        return freeCount == 0 ? -1 : freeCells[random.nextInt(freeCount)];
+    }
+
+    // keeps a free cell out of the index without taking it, for eatables
+    void reserve(int cell) {
+        removeFree(cell);
+    }
+
+    void unreserve(int cell) {
+        if (!isSet(cell)) {
+            addFree(cell);
+        }
+    }
+
+    private void addFree(int cell) {
+        if (freeSlot[cell] < 0) {
+            freeSlot[cell] = freeCount;
+            freeCells[freeCount++] = cell;
+        }
+    }
+
+    private void removeFree(int cell) {
+        int slot = freeSlot[cell];
+        if (slot >= 0) {
+            int last = freeCells[--freeCount];
+            freeCells[slot] = last;
+            freeSlot[last] = slot;
+            freeSlot[cell] = -1;
+        }
+    }
+
+    private void checkWritable() {
+        if (frozen) {
+            throw new IllegalStateException("occupancy is frozen while snakes plan");
+        }
+    }
+
+    // every set or clear is numbered, consumers remember the count they have seen and
+    // read the cells changed since then as long as the journal still holds them
+    long changeCount() {
+        return changeCount;
+    }
+
+    boolean journalCovers(long since) {
+        return changeCount - since <= journal.length;
+    }
+
+    int changedCell(long change) {
+        return journal[(int) change & (journal.length - 1)];
+    }
+
+    // true when self cannot step on the cell, its own tail is free unless it just ate and the tail stays put
+    boolean isBlocked(int cell, Snake self) {
+        if (!isSet(cell)) {
+            return false;
+        }
+        return self == null || owner[cell] != self.id || cell != self.getTailCell() || self.isTailStacked();
+    }
+}
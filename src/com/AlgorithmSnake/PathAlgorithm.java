@@ -0,0 +1,12 @@
+package com.AlgorithmSnake;
+
+// algorithms an ai snake can use to find the eatable, kept outside the swing panel so the engine runs headless
+enum PathAlgorithm {
+    ASTAR,
+    BFS,
+    DIJKSTRA,
+    DSTAR_LITE,
+    JPS,
+    HPA, // hierarchical, for big boards, see ClusterGraph
+    LOOKAHEAD // monte carlo playouts of the next ticks, see Lookahead
+}
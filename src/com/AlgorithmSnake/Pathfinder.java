@@ -0,0 +1,621 @@
+package com.AlgorithmSnake;
+import java.util.Arrays;
+
+// searches from a snake head to the eatable, cells taken in the occupancy grid are obstacles.
+// cells are plain int indices into reusable arrays, a search is valid for a cell only when its
+// stamp matches the current epoch, so nothing is cleared or allocated between searches.
+// per cell it keeps one int cost, one int stamp and a byte for the step back to the parent,
+// which keeps even a 4096x4096 board within reach of a normal heap.
+// the path of the last search is left in path[0 .. length - 1], excluding the start cell.
+// with a deadline set a search that runs out of time stops and leaves the path to the expanded
+// cell closest to the goal instead, which can be empty when it never got past the start.
+class Pathfinder {
+    private static final byte NO_PARENT = -1;
+    private static final int CLOCK_INTERVAL = 256; // expansions between looks at the clock
+    private static final int JUMP_CLOCK_INTERVAL = 8; // a jps expansion scans whole lines, look more often
+    private final Occupancy occupancy;
+    private final int[] neighborOffsets;
+    private final int[] cost;   // f for astar, g for dijkstra, g of a cell is f - h during astar
+    private final int[] stamp;  // 2 * epoch once cost/parent are written, 2 * epoch + 1 once expanded
+    private final byte[] parent; // index into neighborOffsets of the step that reached the cell
+    private final IntHeap heap = new IntHeap(1024);
+    private int[] queue = new int[1024]; // fifo for bfs, grows with the frontier
+    private BitboardFlood flood; // board sized, built by the first reachableArea where rows are a word wide
+    private long[] packedHeap = new long[256]; // (f << 32) | cell or node entries, stale ones are skipped
+    private int packedHeapSize = 0;
+    private int epoch = 0;
+    // hpa scratch: abstract nodes are cluster * MAX_NODES + index, sized on the first hpa search
+    private int[] nodeCost; // g of the node
+    private int[] nodeStamp; // same scheme as stamp
+    private int[] nodeParent; // node before it, -2 - seed for nodes reached straight from a seed
+    private final int[] localLevel = new int[ClusterGraph.CLUSTER_SIZE * ClusterGraph.CLUSTER_SIZE];
+    private final int[] localStamp = new int[ClusterGraph.CLUSTER_SIZE * ClusterGraph.CLUSTER_SIZE];
+    private final byte[] localParent = new byte[ClusterGraph.CLUSTER_SIZE * ClusterGraph.CLUSTER_SIZE];
+    private int localEpoch = 0;
+    private final int[] goalDistance = new int[ClusterGraph.MAX_NODES];
+    private final int[] seeds = new int[5];
+    int[] path = new int[256];
+    int expansions = 0; // cells taken off the open list or queue by the last search
+    int maxFrontier = 0; // largest open list or queue of the last search
+    long deadline = Long.MAX_VALUE; // System.nanoTime() at which searches give up
+    boolean deadlineHit = false; // the last search ran out of time and left a partial path
+    private int closest; // expanded cell nearest to the goal, kept only while a deadline is set
+    private int closestDistance;
+
+    Pathfinder(Occupancy occupancy) {
+        this.occupancy = occupancy;
+        int cells = occupancy.height << occupancy.shift;
+        // same expansion order as the old point based getNeighbors: +x, -x, +y, -y
+        this.neighborOffsets = new int[]{1, -1, occupancy.stride, -occupancy.stride};
+        this.cost = new int[cells];
+        this.stamp = new int[cells];
+        this.parent = new byte[cells];
+    }
+
+    public int aStar(Snake snake, int end, boolean optimal) {
+        nextEpoch();
+        int open = epoch << 1;
+        int closed = open + 1;
+        int start = snake.getHeadCell();
+        heap.clear(cost);
+        cost[start] = heuristic(start, end);
+        parent[start] = NO_PARENT;
+        stamp[start] = open;
+        heap.add(start);
+        expansions = 0;
+        maxFrontier = 0;
+        startClock(start);
+
+        while (!heap.isEmpty()) {
+            maxFrontier = Math.max(maxFrontier, heap.size());
+            int current = heap.poll();
+            expansions++;
+            if (current == end) {
+                return reconstructPath(current);
+            }
+            if (outOfTime(current, end)) {
+                return reconstructPath(closest);
+            }
+
+            stamp[current] = closed;
+            int ng = cost[current] - heuristic(current, end) + 1;
+
+            for (int d = 0; d < 4; d++) {
+                int neighbor = current + neighborOffsets[d];
+                if (stamp[neighbor] == closed || occupancy.isBlocked(neighbor, snake)) {
+                    continue;
+                }
+
+                int h = heuristic(neighbor, end);
+                if (stamp[neighbor] != open || ng + h < cost[neighbor]) {
+                    cost[neighbor] = ng + h;
+                    parent[neighbor] = (byte) d;
+                    stamp[neighbor] = open;
+
+                    if (!optimal && neighbor == end) {
+                        return reconstructPath(neighbor);
+                    }
+                    heap.add(neighbor);
+                }
+            }
+        }
+        return 0;
+    }
+
+    public int bfs(Snake snake, int end, boolean optimal) {
+        nextEpoch();
+        int seen = epoch << 1;
+        int start = snake.getHeadCell();
+        int head = 0;
+        int count = 0;
+        parent[start] = NO_PARENT;
+        stamp[start] = seen;
+        queue[count++] = start;
+        expansions = 0;
+        maxFrontier = 0;
+        startClock(start);
+
+        while (count > 0) {
+            maxFrontier = Math.max(maxFrontier, count);
+            int current = queue[head];
+            head = (head + 1) & (queue.length - 1);
+            count--;
+            expansions++;
+            if (current == end) {
+                return reconstructPath(current);
+            }
+            if (outOfTime(current, end)) {
+                return reconstructPath(closest);
+            }
+
+            for (int d = 0; d < 4; d++) {
+                int neighbor = current + neighborOffsets[d];
+                if (stamp[neighbor] != seen && !occupancy.isBlocked(neighbor, snake)) {
+                    parent[neighbor] = (byte) d;
+                    stamp[neighbor] = seen;
+                    if (count == queue.length) {
+                        head = growQueue(head);
+                    }
+                    queue[(head + count++) & (queue.length - 1)] = neighbor;
+                    if (!optimal && neighbor == end) {
+                        return reconstructPath(neighbor);
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    // number of cells the snake could reach from its head, the head included. filled on the
+    // bitset where rows are a word wide, else an exhaustive bfs. no deadline applies
+    public int reachableArea(Snake snake) {
+        if (flood == null && BitboardFlood.fits(occupancy)) {
+            flood = new BitboardFlood(occupancy);
+        }
+        if (flood != null) {
+            return flood.fill(snake.getHeadCell(), snake.isTailStacked() ? -1 : snake.getTailCell());
+        }
+        long saved = deadline;
+        deadline = Long.MAX_VALUE;
+        bfs(snake, -1, true);
+        deadline = saved;
+        return expansions;
+    }
+
+    // with unit edge weights the first relaxation of a cell is already its best, so every cell
+    // enters the heap once and g doubles as the heap key without any stale entries
+    public int dijkstra(Snake snake, int end, boolean optimal) {
+        nextEpoch();
+        int seen = epoch << 1;
+        int start = snake.getHeadCell();
+        heap.clear(cost);
+        cost[start] = 0;
+        parent[start] = NO_PARENT;
+        stamp[start] = seen;
+        heap.add(start);
+        expansions = 0;
+        maxFrontier = 0;
+        startClock(start);
+
+        while (!heap.isEmpty()) {
+            maxFrontier = Math.max(maxFrontier, heap.size());
+            int current = heap.poll();
+            expansions++;
+            if (current == end) {
+                return reconstructPath(current);
+            }
+            if (outOfTime(current, end)) {
+                return reconstructPath(closest);
+            }
+
+            for (int d = 0; d < 4; d++) {
+                int neighbor = current + neighborOffsets[d];
+                if (occupancy.isBlocked(neighbor, snake)) {
+                    continue;
+                }
+                int tentativeG = cost[current] + 1;
+                if (stamp[neighbor] != seen || tentativeG < cost[neighbor]) {
+                    cost[neighbor] = tentativeG;
+                    parent[neighbor] = (byte) d;
+                    stamp[neighbor] = seen;
+                    heap.add(neighbor);
+                }
+            }
+        }
+        return 0;
+    }
+
+    // jump point search, a* over jump points only. on a 4-connected grid of unit cost every cell
+    // but the reverse direction is a successor, straight runs are skipped over until the goal, a
+    // cell next to an obstacle corner (forced neighbour) or, for vertical runs, a row that has one.
+    // the horizontal and vertical scans follow the never-diagonal variant of PathFinding.js.
+    // only jump points are stamped and queued, the cells between them are filled in from g.
+    public int jps(Snake snake, int end, boolean optimal) {
+        nextEpoch();
+        int open = epoch << 1;
+        int closed = open + 1;
+        int start = snake.getHeadCell();
+        packedHeapSize = 0;
+        cost[start] = heuristic(start, end);
+        parent[start] = NO_PARENT;
+        stamp[start] = open;
+        pushPacked(start, cost[start]);
+        expansions = 0;
+        maxFrontier = 0;
+        startClock(start);
+
+        while (packedHeapSize > 0) {
+            maxFrontier = Math.max(maxFrontier, packedHeapSize);
+            long top = pollPacked();
+            int current = (int) top;
+            // the cell was queued again with a lower f, this entry is stale
+            if (stamp[current] == closed || cost[current] != (int) (top >>> 32)) {
+                continue;
+            }
+            expansions++;
+            if (current == end) {
+                return reconstructJumpPath(current, end);
+            }
+            if (outOfTime(current, end, JUMP_CLOCK_INTERVAL)) {
+                return reconstructJumpPath(closest, end);
+            }
+
+            stamp[current] = closed;
+            int g = cost[current] - heuristic(current, end);
+            for (int d = 0; d < 4; d++) {
+                if (parent[current] != NO_PARENT && d == (parent[current] ^ 1)) {
+                    continue; // never straight back, offsets come in opposite pairs
+                }
+                int next = current + neighborOffsets[d];
+                int jumpPoint = d < 2 ? jumpHorizontal(next, d, snake, end) : jumpVertical(next, d, snake, end);
+                if (jumpPoint < 0 || stamp[jumpPoint] == closed) {
+                    continue;
+                }
+
+                int f = g + heuristic(current, jumpPoint) + heuristic(jumpPoint, end);
+                if (stamp[jumpPoint] != open || f < cost[jumpPoint]) {
+                    cost[jumpPoint] = f;
+                    parent[jumpPoint] = (byte) d;
+                    stamp[jumpPoint] = open;
+
+                    if (!optimal && jumpPoint == end) {
+                        return reconstructJumpPath(jumpPoint, end);
+                    }
+                    pushPacked(jumpPoint, f);
+                }
+            }
+        }
+        return 0;
+    }
+
+    // runs along a row from cell, stops at the goal or where a cell above or below opens up
+    // right after one that was blocked. -1 when the run hits an obstacle first
+    private int jumpHorizontal(int cell, int d, Snake snake, int end) {
+        int step = neighborOffsets[d];
+        int up = -occupancy.stride;
+        int down = occupancy.stride;
+        for (; !occupancy.isBlocked(cell, snake); cell += step) {
+            if (cell == end
+                    || (!occupancy.isBlocked(cell + up, snake) && occupancy.isBlocked(cell - step + up, snake))
+                    || (!occupancy.isBlocked(cell + down, snake) && occupancy.isBlocked(cell - step + down, snake))) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    // runs along a column, besides its own forced neighbours it stops on any row where a
+    // horizontal run would find a jump point, otherwise those turns could never be taken
+    private int jumpVertical(int cell, int d, Snake snake, int end) {
+        int step = neighborOffsets[d];
+        for (; !occupancy.isBlocked(cell, snake); cell += step) {
+            if (cell == end
+                    || (!occupancy.isBlocked(cell - 1, snake) && occupancy.isBlocked(cell - 1 - step, snake))
+                    || (!occupancy.isBlocked(cell + 1, snake) && occupancy.isBlocked(cell + 1 - step, snake))
+                    || jumpHorizontal(cell + 1, 0, snake, end) >= 0
+                    || jumpHorizontal(cell - 1, 1, snake, end) >= 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    // hierarchical search over a ClusterGraph that is up to date with the board. the eatable and
+    // the head are tied into the graph by a bfs inside their clusters, a* runs over the transition
+    // nodes and only the walk to the first node is refined into cells: path holds that segment and
+    // its length is returned, 0 when there is no way. the head blocks its own row of a border, so
+    // its neighbours across one are searched from too. entrances are crossed at a single cell, so
+    // a path can be a little longer than the shortest one whatever optimal says, which only lets
+    // the search stop at the first way to the goal it finds
+    public int hpa(Snake snake, int end, boolean optimal, ClusterGraph graph) {
+        int ids = graph.clusters() * ClusterGraph.MAX_NODES;
+        if (nodeCost == null || nodeCost.length < ids) {
+            nodeCost = new int[ids];
+            nodeStamp = new int[ids];
+            nodeParent = new int[ids];
+        }
+        nextEpoch();
+        int open = epoch << 1;
+        int closed = open + 1;
+        packedHeapSize = 0;
+        expansions = 0;
+        maxFrontier = 0;
+        startClock(snake.getHeadCell());
+
+        int goalCluster = graph.clusterOf(end);
+        int[] goalNodes = graph.nodes(goalCluster);
+        clusterBfs(end, goalCluster, snake, graph);
+        for (int i = 0; i < goalNodes.length; i++) {
+            goalDistance[i] = localDistance(goalNodes[i], graph);
+        }
+
+        int head = snake.getHeadCell();
+        int seedCount = 0;
+        seeds[seedCount++] = head;
+        for (int offset : neighborOffsets) {
+            int neighbor = head + offset;
+            if (graph.crossesBorder(head, neighbor) && !occupancy.isBlocked(neighbor, snake)) {
+                seeds[seedCount++] = neighbor;
+            }
+        }
+        int best = Integer.MAX_VALUE;
+        int bestNode = -1; // stays -1 when the best way runs inside a seed's cluster
+        int bestSeed = -1;
+        for (int s = 0; s < seedCount; s++) {
+            int cluster = graph.clusterOf(seeds[s]);
+            int base = s == 0 ? 0 : 1;
+            clusterBfs(seeds[s], cluster, snake, graph);
+            int direct = cluster == goalCluster ? localDistance(end, graph) : -1;
+            if (direct >= 0 && base + direct < best) {
+                best = base + direct;
+                bestSeed = s;
+            }
+            int[] clusterNodes = graph.nodes(cluster);
+            for (int i = 0; i < clusterNodes.length; i++) {
+                int distance = localDistance(clusterNodes[i], graph);
+                if (distance >= 0) {
+                    relaxNode(cluster * ClusterGraph.MAX_NODES + i, base + distance, -2 - s, clusterNodes[i], end);
+                }
+            }
+        }
+
+        while (packedHeapSize > 0 && (optimal || best == Integer.MAX_VALUE)) {
+            maxFrontier = Math.max(maxFrontier, packedHeapSize);
+            long top = pollPacked();
+            int f = (int) (top >>> 32);
+            if (f >= best) {
+                break;
+            }
+            int id = (int) top;
+            int cluster = id / ClusterGraph.MAX_NODES;
+            int index = id % ClusterGraph.MAX_NODES;
+            int[] clusterNodes = graph.nodes(cluster);
+            int cell = clusterNodes[index];
+            int g = nodeCost[id];
+            if (nodeStamp[id] == closed || g + heuristic(cell, end) != f) {
+                continue;
+            }
+            expansions++;
+            nodeStamp[id] = closed;
+            if (cluster == goalCluster && goalDistance[index] >= 0 && g + goalDistance[index] < best) {
+                best = g + goalDistance[index];
+                bestNode = id;
+            }
+            if (outOfTime(cell, end)) {
+                if (best == Integer.MAX_VALUE) {
+                    best = g; // no way to the goal yet, head for the closest node instead
+                    bestNode = graph.clusterOf(closest) * ClusterGraph.MAX_NODES
+                            + graph.nodeIndex(graph.clusterOf(closest), closest);
+                }
+                break;
+            }
+
+            for (int j = 0; j < clusterNodes.length; j++) {
+                int distance = graph.distance(cluster, index, j);
+                if (distance > 0) {
+                    relaxNode(cluster * ClusterGraph.MAX_NODES + j, g + distance, id, clusterNodes[j], end);
+                }
+            }
+            for (int offset : neighborOffsets) {
+                int neighbor = cell + offset;
+                if (graph.crossesBorder(cell, neighbor) && !occupancy.isSet(neighbor)) {
+                    int neighborCluster = graph.clusterOf(neighbor);
+                    int j = graph.nodeIndex(neighborCluster, neighbor);
+                    if (j >= 0) {
+                        relaxNode(neighborCluster * ClusterGraph.MAX_NODES + j, g + 1, id, neighbor, end);
+                    }
+                }
+            }
+        }
+        if (best == Integer.MAX_VALUE) {
+            return 0;
+        }
+
+        int seed = bestSeed;
+        int waypoint = end;
+        if (bestNode >= 0) {
+            int id = bestNode;
+            while (nodeParent[id] >= 0) {
+                id = nodeParent[id];
+            }
+            seed = -2 - nodeParent[id];
+            waypoint = graph.nodes(id / ClusterGraph.MAX_NODES)[id % ClusterGraph.MAX_NODES];
+        }
+        return refine(snake, seeds[seed], seed > 0, waypoint, graph);
+    }
+
+    private void startClock(int start) {
+        deadlineHit = false;
+        closest = start;
+        closestDistance = Integer.MAX_VALUE;
+    }
+
+    // called once per expansion. while a deadline is set it keeps track of the expanded cell
+    // nearest the goal and every CLOCK_INTERVAL expansions checks whether time is up
+    private boolean outOfTime(int cell, int end) {
+        return outOfTime(cell, end, CLOCK_INTERVAL);
+    }
+
+    private boolean outOfTime(int cell, int end, int interval) {
+        if (deadline == Long.MAX_VALUE) {
+            return false;
+        }
+        int distance = heuristic(cell, end);
+        if (distance < closestDistance) {
+            closest = cell;
+            closestDistance = distance;
+        }
+        if ((expansions & (interval - 1)) == 0 && System.nanoTime() - deadline > 0) {
+            deadlineHit = true;
+            return true;
+        }
+        return false;
+    }
+
+    private void relaxNode(int id, int g, int parentId, int cell, int end) {
+        int open = epoch << 1;
+        if (nodeStamp[id] == open + 1) {
+            return;
+        }
+        if (nodeStamp[id] != open || g < nodeCost[id]) {
+            nodeCost[id] = g;
+            nodeParent[id] = parentId;
+            nodeStamp[id] = open;
+            pushPacked(id, g + heuristic(cell, end));
+        }
+    }
+
+    // the cells from the seed to the waypoint in the seed's cluster, led by the seed itself when
+    // it is a neighbour of the head and not the head
+    private int refine(Snake snake, int seed, boolean besideHead, int waypoint, ClusterGraph graph) {
+        clusterBfs(seed, graph.clusterOf(seed), snake, graph);
+        int length = localDistance(waypoint, graph) + (besideHead ? 1 : 0);
+        if (length > path.length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        int i = length;
+        for (int c = waypoint; c != seed; c -= neighborOffsets[localParent[graph.localIndex(c)]]) {
+            path[--i] = c;
+        }
+        if (besideHead) {
+            path[0] = seed;
+        }
+        return length;
+    }
+
+    // bfs from a cell over the cells of its cluster the snake can step on
+    private void clusterBfs(int from, int cluster, Snake snake, ClusterGraph graph) {
+        if (++localEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(localStamp, 0);
+            localEpoch = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        int start = graph.localIndex(from);
+        localLevel[start] = 0;
+        localStamp[start] = localEpoch;
+        localParent[start] = NO_PARENT;
+        queue[tail++] = from;
+        while (head < tail) {
+            int current = queue[head++];
+            expansions++;
+            int next = localLevel[graph.localIndex(current)] + 1;
+            for (int d = 0; d < 4; d++) {
+                int neighbor = current + neighborOffsets[d];
+                if (occupancy.isBlocked(neighbor, snake) || graph.clusterOf(neighbor) != cluster) {
+                    continue;
+                }
+                int local = graph.localIndex(neighbor);
+                if (localStamp[local] != localEpoch) {
+                    localStamp[local] = localEpoch;
+                    localLevel[local] = next;
+                    localParent[local] = (byte) d;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    // level of a cell of the cluster searched last, -1 when the bfs did not reach it
+    private int localDistance(int cell, ClusterGraph graph) {
+        int local = graph.localIndex(cell);
+        return localStamp[local] == localEpoch ? localLevel[local] : -1;
+    }
+
+    private void pushPacked(int cell, int f) {
+        if (packedHeapSize == packedHeap.length) {
+            packedHeap = Arrays.copyOf(packedHeap, packedHeapSize * 2);
+        }
+        long entry = ((long) f << 32) | cell;
+        int k = packedHeapSize++;
+        while (k > 0) {
+            int parentIndex = (k - 1) >>> 1;
+            if (entry >= packedHeap[parentIndex]) {
+                break;
+            }
+            packedHeap[k] = packedHeap[parentIndex];
+            k = parentIndex;
+        }
+        packedHeap[k] = entry;
+    }
+
+    private long pollPacked() {
+        long result = packedHeap[0];
+        long last = packedHeap[--packedHeapSize];
+        int k = 0;
+        int half = packedHeapSize >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            if (child + 1 < packedHeapSize && packedHeap[child + 1] < packedHeap[child]) {
+                child++;
+            }
+            if (last <= packedHeap[child]) {
+                break;
+            }
+            packedHeap[k] = packedHeap[child];
+            k = child;
+        }
+        if (packedHeapSize > 0) {
+            packedHeap[k] = last;
+        }
+        return result;
+    }
+
+    // walks each straight segment back from the goal until it reaches an expanded cell whose g
+    // fits the step count, that is the jump point it came from (or one just as good)
+    private int reconstructJumpPath(int cell, int end) {
+        int closed = (epoch << 1) + 1;
+        int length = cost[cell] - heuristic(cell, end);
+        if (length > path.length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        int i = length;
+        while (i > 0) {
+            int step = neighborOffsets[parent[cell]];
+            do {
+                path[--i] = cell;
+                cell -= step;
+            } while (stamp[cell] != closed || cost[cell] - heuristic(cell, end) != i);
+        }
+        return length;
+    }
+
+    private void nextEpoch() {
+        if (++epoch == 1 << 30) {
+            Arrays.fill(stamp, 0);
+            if (nodeStamp != null) {
+                Arrays.fill(nodeStamp, 0);
+            }
+            epoch = 1;
+        }
+    }
+
+    // doubles the ring, unwrapping it so the live part starts at 0 again
+    private int growQueue(int head) {
+        int[] grown = new int[queue.length * 2];
+        int firstPart = queue.length - head;
+        System.arraycopy(queue, head, grown, 0, firstPart);
+        System.arraycopy(queue, 0, grown, firstPart, head);
+        queue = grown;
+        return 0;
+    }
+
+    private int heuristic(int a, int b) {
+        return Math.abs(occupancy.x(a) - occupancy.x(b)) + Math.abs(occupancy.y(a) - occupancy.y(b)); // distance in an grid struct "steps"
+    }
+
+    private int reconstructPath(int cell) {
+        int length = 0;
+        for (int c = cell; parent[c] != NO_PARENT; c -= neighborOffsets[parent[c]]) {
+            length++;
+        }
+        if (length > path.length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        int i = length;
+        for (int c = cell; parent[c] != NO_PARENT; c -= neighborOffsets[parent[c]]) {
+            path[--i] = c;
+        }
+        return length;
+    }
+}
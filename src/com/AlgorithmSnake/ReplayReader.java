@@ -0,0 +1,193 @@
+package com.AlgorithmSnake;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// plays back a file written by ReplayWriter. the file is memory mapped, seeking restores the
+// closest keyframe at or before the tick into a fresh engine and applies the ticks after it,
+// so any tick is at most KEYFRAME_INTERVAL steps away. the engine only holds the board state,
+// nobody plans or spawns in it, the snakes follow the recorded steps.
+class ReplayReader {
+    final int width;
+    final int height;
+    final long seed;
+    final int lastTick;
+    private final int version;
+    private final MappedByteBuffer data;
+    private final int[] keyframeTicks;
+    private final int[] keyframeOffsets;
+    private GameEngine engine;
+    private ByteBuffer cursor; // positioned at the record after the current tick
+    private int tick;
+
+    ReplayReader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("replay " + file + " is larger than 2 GB");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (data.limit() < 36 || data.getInt(0) != ReplayWriter.MAGIC || data.getInt(data.limit() - 4) != ReplayWriter.MAGIC) {
+            throw new IOException(file + " is not a complete replay");
+        }
+        version = data.getInt(4);
+        if (version < 1 || version > ReplayWriter.VERSION) {
+            throw new IOException("unsupported replay version " + version);
+        }
+        width = data.getInt(8);
+        height = data.getInt(12);
+        seed = data.getLong(16);
+
+        int endOffset = (int) data.getLong(data.limit() - 12);
+        ByteBuffer end = data.duplicate().position(endOffset);
+        if (end.get() != ReplayWriter.END) {
+            throw new IOException(file + " has a broken keyframe index");
+        }
+        lastTick = end.getInt();
+        int keyframes = end.getInt();
+        keyframeTicks = new int[keyframes];
+        keyframeOffsets = new int[keyframes];
+        for (int i = 0; i < keyframes; i++) {
+            keyframeTicks[i] = end.getInt();
+            keyframeOffsets[i] = (int) end.getLong();
+        }
+        seek(keyframeTicks[0]);
+    }
+
+    // board state at the current tick, replaced by every seek
+    GameEngine engine() {
+        return engine;
+    }
+
+    int tick() {
+        return tick;
+    }
+
+    int firstTick() {
+        return keyframeTicks[0];
+    }
+
+    public void seek(int target) {
+        target = Math.max(keyframeTicks[0], Math.min(target, lastTick));
+        if (target < tick || target - tick > ReplayWriter.KEYFRAME_INTERVAL || engine == null) {
+            int lo = 0;
+            int hi = keyframeTicks.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (keyframeTicks[mid] <= target) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            restore(keyframeOffsets[lo]);
+        }
+        while (tick < target) {
+            step();
+        }
+    }
+
+    // applies the next recorded tick, false at the end of the replay
+    public boolean step() {
+        if (tick >= lastTick) {
+            return false;
+        }
+        if (cursor.get(cursor.position()) == ReplayWriter.KEYFRAME) {
+            skipKeyframe();
+        }
+        if (cursor.get() != ReplayWriter.TICK) {
+            throw new IllegalStateException("replay is out of step at tick " + tick);
+        }
+        tick++;
+        applyTick(engine, cursor, tick);
+        return true;
+    }
+
+    // the steps of a tick record after its TICK byte, done to an engine that holds the state before it
+    static void applyTick(GameEngine engine, ByteBuffer in, int tick) {
+        Occupancy occupancy = engine.occupancy;
+        int[] offsets = {1, -1, occupancy.stride, -occupancy.stride};
+        List<Snake> died = new ArrayList<>();
+        for (Snake snake : new ArrayList<>(engine.snakes)) {
+            int code = in.get();
+            int move = code & ~ReplayWriter.ATE;
+            if (move == ReplayWriter.DIED) {
+                died.add(snake);
+                continue;
+            }
+            snake.direction = offsets[move];
+            snake.move();
+            if ((code & ReplayWriter.ATE) != 0) {
+                int spawned = in.getInt();
+                snake.eatEatable();
+                engine.moveEatable(engine.eatableAt(snake.getHeadCell()), spawned);
+            }
+        }
+        for (Snake snake : died) {
+            snake.release();
+            snake.diedAt = tick;
+        }
+        engine.snakes.removeAll(died);
+    }
+
+    private void restore(int offset) {
+        ByteBuffer in = data.duplicate().position(offset);
+        if (in.get() != ReplayWriter.KEYFRAME) {
+            throw new IllegalStateException("no keyframe at offset " + offset);
+        }
+        tick = in.getInt();
+        engine = readKeyframe(in, version, seed, width, height);
+        cursor = in;
+    }
+
+    // a fresh engine with the state of a keyframe record, in is positioned after its tick
+    static GameEngine readKeyframe(ByteBuffer in, int version, long seed, int width, int height) {
+        GameEngine engine = new GameEngine(seed, width, height);
+        Occupancy occupancy = engine.occupancy;
+        int eatables = version == 1 ? 1 : in.getInt();
+        for (int i = 0; i < eatables; i++) {
+            int cell = in.getInt();
+            if (cell >= 0) {
+                engine.placeEatable(cell);
+            }
+        }
+        int snakes = in.getInt();
+        PathAlgorithm[] algorithms = PathAlgorithm.values();
+        for (int i = 0; i < snakes; i++) {
+            int id = in.getInt();
+            int algorithm = in.get();
+            boolean optimal = in.get() != 0;
+            int score = in.getInt();
+            int direction = in.getInt();
+            int[] body = new int[in.getInt()];
+            for (int j = 0; j < body.length; j++) {
+                body[j] = in.getInt();
+            }
+            Snake snake = new Snake(id, body, body.length, algorithm < 0 ? null : algorithms[algorithm], optimal, occupancy);
+            snake.score = score;
+            snake.direction = direction;
+            engine.snakes.add(snake);
+            engine.roster.add(snake);
+        }
+        return engine;
+    }
+
+    private void skipKeyframe() {
+        cursor.get();
+        cursor.getInt();
+        int eatables = version == 1 ? 1 : cursor.getInt();
+        cursor.position(cursor.position() + 4 * eatables);
+        int snakes = cursor.getInt();
+        for (int i = 0; i < snakes; i++) {
+            cursor.position(cursor.position() + 14);
+            int length = cursor.getInt();
+            cursor.position(cursor.position() + 4 * length);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.AlgorithmSnake;
+import javax.swing.*;
+import java.awt.*;
+import java.nio.file.Paths;
+
+// swing player for recorded games, the slider seeks to any tick, space pauses and resumes
+public class ReplayViewer extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_VIEW_SIZE = 600;
+    private static final int UNIT_SIZE = 5;
+    private static final int FRAME_MILLIS = 50;
+    private final ReplayReader replay;
+    private final int block;
+    private final int viewWidth;
+    private final int viewHeight;
+    private final JSlider slider;
+    private final JLabel tickLabel = new JLabel();
+    private final javax.swing.Timer timer;
+    private BoardImage board;
+    private GameEngine shown; // engine the board image was built for, seeks may replace it
+    private boolean updatingSlider = false;
+
+    ReplayViewer(ReplayReader replay) {
+        super(new BorderLayout());
+        this.replay = replay;
+        double scale = Math.min(UNIT_SIZE, (double) MAX_VIEW_SIZE / Math.max(replay.width, replay.height));
+        this.block = Math.max(1, (int) Math.ceil(1 / scale));
+        this.viewWidth = (int) Math.ceil(replay.width * scale);
+        this.viewHeight = (int) Math.ceil(replay.height * scale);
+
+        JPanel view = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                g.drawImage(board.image, 0, 0, viewWidth, viewHeight, null);
+            }
+        };
+        view.setPreferredSize(new Dimension(viewWidth, viewHeight));
+        view.setBackground(Color.BLACK);
+
+        slider = new JSlider(replay.firstTick(), Math.max(replay.firstTick(), replay.lastTick), replay.firstTick());
+        slider.addChangeListener(e -> {
+            if (!updatingSlider) {
+                replay.seek(slider.getValue());
+                refresh();
+            }
+        });
+        JPanel controls = new JPanel(new BorderLayout());
+        controls.add(slider, BorderLayout.CENTER);
+        controls.add(tickLabel, BorderLayout.EAST);
+        add(view, BorderLayout.CENTER);
+        add(controls, BorderLayout.SOUTH);
+
+        timer = new javax.swing.Timer(FRAME_MILLIS, e -> {
+            if (!replay.step()) {
+                ((javax.swing.Timer) e.getSource()).stop();
+            }
+            refresh();
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("SPACE"), "toggle");
+        getActionMap().put("toggle", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                if (timer.isRunning()) {
+                    timer.stop();
+                } else {
+                    timer.start();
+                }
+            }
+        });
+        refresh();
+        timer.start();
+    }
+
+    private void refresh() {
+        if (replay.engine() != shown) {
+            shown = replay.engine();
+            board = new BoardImage(shown, block);
+        } else {
+            board.update();
+        }
+        StringBuilder text = new StringBuilder(" tick " + replay.tick());
+        for (Snake snake : shown.snakes) {
+            text.append("  ").append(snake.algorithm == null ? "PLAYER" : snake.algorithm.name()).append(' ').append(snake.score);
+        }
+        tickLabel.setText(text.toString());
+        updatingSlider = true;
+        slider.setValue(replay.tick());
+        updatingSlider = false;
+        repaint();
+    }
+
+    // usage: ReplayViewer <replay file> [start tick]
+    public static void main(String[] args) throws Exception {
+        ReplayReader replay = new ReplayReader(Paths.get(args[0]));
+        if (args.length > 1) {
+            replay.seek(Integer.parseInt(args[1]));
+        }
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Replay " + args[0]);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(new ReplayViewer(replay));
+            frame.pack();
+            frame.setVisible(true);
+        });
+    }
+}
@@ -0,0 +1,219 @@
+package com.AlgorithmSnake;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// binary log of a game, written while it runs. the game thread only puts a few bytes per snake
+// into a buffer, full buffers go to a background thread that writes them to a file channel.
+//
+// layout, all numbers big endian:
+//   header    int MAGIC, int VERSION, int width, int height, long seed
+//   keyframe  byte KEYFRAME, int tick, int eatables, eatables * int cell, int snakes, then per
+//             snake in tick order
+//             int id, byte algorithm ordinal (-1 for the player), byte optimal, int score,
+//             int direction, int length, length * int cell head first
+//   tick      byte TICK, then one byte per living snake in tick order: the direction index
+//             (0 +x, 1 -x, 2 +y, 3 -y) or DIED, with ATE added when it ate, followed by the int
+//             cell the eaten eatable respawned on, -1 when the board was full and it is gone.
+//             snakes that died leave at the end of the tick
+// version 1 files hold a single eatable cell in keyframes, -1 when there was none.
+//   end       byte END, int last tick, int keyframes, keyframes * (int tick, long offset)
+//   footer    long offset of the end record, int MAGIC
+// a keyframe holds the state after its tick and is written every KEYFRAME_INTERVAL ticks.
+class ReplayWriter implements GameRecorder, Closeable {
+    static final int MAGIC = 0x41534E52; // "ASNR"
+    static final int VERSION = 2;
+    static final byte KEYFRAME = 'K';
+    static final byte TICK = 'T';
+    static final byte END = 'E';
+    static final byte DIED = 0x0F;
+    static final byte ATE = 0x10;
+    static final int KEYFRAME_INTERVAL = 256;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int CHUNKS_IN_FLIGHT = 8;
+    private static final ByteBuffer CLOSED = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(CHUNKS_IN_FLIGHT);
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(CHUNKS_IN_FLIGHT);
+    private final Thread thread;
+    private volatile IOException failure;
+    private ByteBuffer current = ByteBuffer.allocate(CHUNK_SIZE);
+    private long handedOver = 0; // bytes in buffers already given to the writer thread
+    private int stride;
+    private int tick;
+    private int[] keyframeTicks = new int[64];
+    private long[] keyframeOffsets = new long[64];
+    private int keyframes = 0;
+
+    ReplayWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        thread = new Thread(this::drain, "replay-writer " + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void begin(GameEngine engine) {
+        stride = engine.occupancy.stride;
+        tick = engine.getTicks();
+        ensure(24);
+        current.putInt(MAGIC).putInt(VERSION).putInt(engine.width).putInt(engine.height).putLong(engine.seed);
+        keyframe(engine);
+    }
+
+    @Override
+    public void beginTick() {
+        tick++;
+        ensure(1);
+        current.put(TICK);
+    }
+
+    @Override
+    public void step(Snake snake, boolean moved, boolean ate, int spawned) {
+        ensure(5);
+        putStep(current, snake, moved, ate, spawned, stride);
+    }
+
+    @Override
+    public void keyframe(GameEngine engine) {
+        if (keyframes == keyframeTicks.length) {
+            keyframeTicks = Arrays.copyOf(keyframeTicks, keyframes * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframes * 2);
+        }
+        keyframeTicks[keyframes] = tick;
+        keyframeOffsets[keyframes++] = handedOver + current.position();
+
+        int size = keyframeSize(engine);
+        ensure(size);
+        if (current.remaining() < size) {
+            current = ByteBuffer.allocate(size); // bigger than a chunk, recycled like any other
+        }
+        putKeyframe(current, engine, tick);
+    }
+
+    static int keyframeSize(GameEngine engine) {
+        int size = 13 + 4 * engine.eatables.size();
+        for (Snake snake : engine.snakes) {
+            size += 18 + 4 * snake.length();
+        }
+        return size;
+    }
+
+    // the keyframe record, out needs keyframeSize bytes
+    static void putKeyframe(ByteBuffer out, GameEngine engine, int tick) {
+        int[] eatables = engine.eatableCells();
+        out.put(KEYFRAME).putInt(tick).putInt(eatables.length);
+        for (int cell : eatables) {
+            out.putInt(cell);
+        }
+        out.putInt(engine.snakes.size());
+        for (Snake snake : engine.snakes) {
+            out.putInt(snake.id)
+                    .put((byte) (snake.algorithm == null ? -1 : snake.algorithm.ordinal()))
+                    .put((byte) (snake.optimal ? 1 : 0))
+                    .putInt(snake.score)
+                    .putInt(snake.direction)
+                    .putInt(snake.length());
+            for (int i = 0; i < snake.length(); i++) {
+                out.putInt(snake.cellAt(i));
+            }
+        }
+    }
+
+    // the step of one snake within a tick record, at most 5 bytes
+    static void putStep(ByteBuffer out, Snake snake, boolean moved, boolean ate, int spawned, int stride) {
+        byte code = moved ? directionIndex(snake.direction, stride) : DIED;
+        if (ate) {
+            out.put((byte) (code | ATE)).putInt(spawned);
+        } else {
+            out.put(code);
+        }
+    }
+
+    // writes the keyframe index and waits until everything is on disk
+    @Override
+    public void close() throws IOException {
+        long endOffset = handedOver + current.position();
+        ensure(9);
+        current.put(END).putInt(tick).putInt(keyframes);
+        for (int i = 0; i < keyframes; i++) {
+            ensure(12);
+            current.putInt(keyframeTicks[i]).putLong(keyframeOffsets[i]);
+        }
+        ensure(12);
+        current.putLong(endOffset).putInt(MAGIC);
+        handOver();
+        try {
+            full.put(CLOSED);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while closing the replay", e);
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static byte directionIndex(int direction, int stride) {
+        if (direction == 1) return 0;
+        if (direction == -1) return 1;
+        return direction == stride ? (byte) 2 : (byte) 3;
+    }
+
+    private void ensure(int bytes) {
+        if (current.remaining() < bytes) {
+            handOver();
+        }
+    }
+
+    // passes the current buffer to the writer thread and continues in a recycled one
+    private void handOver() {
+        if (current.position() == 0) {
+            return;
+        }
+        handedOver += current.position();
+        current.flip();
+        try {
+            full.put(current);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while recording", e);
+        }
+        ByteBuffer next = free.poll();
+        current = next != null ? next : ByteBuffer.allocate(CHUNK_SIZE);
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                ByteBuffer buffer = full.take();
+                if (buffer == CLOSED) {
+                    return;
+                }
+                // after a failure the rest is dropped, close reports it
+                while (failure == null && buffer.hasRemaining()) {
+                    try {
+                        channel.write(buffer);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                buffer.clear();
+                free.offer(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
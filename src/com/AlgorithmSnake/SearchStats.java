@@ -0,0 +1,80 @@
+package com.AlgorithmSnake;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// latency of every search of one algorithm plus how much work it did and what it found
+class SearchStats extends LatencyStats implements SearchStatsMBean {
+    private final LongAdder expansions = new LongAdder();
+    private final AtomicLong maxExpansions = new AtomicLong();
+    private final AtomicLong maxFrontier = new AtomicLong();
+    private final LongAdder pathLength = new LongAdder();
+    private final LongAdder found = new LongAdder();
+    private final AtomicLong maxPathLength = new AtomicLong();
+    private final LongAdder deadlineHits = new LongAdder();
+
+    // frontier is the largest open list or queue seen, pathLength 0 when there was no path,
+    // outOfTime when the search hit its deadline and the path is partial
+    void record(long nanos, int expanded, int frontier, int length, boolean outOfTime) {
+        record(nanos);
+        if (outOfTime) {
+            deadlineHits.increment();
+        }
+        expansions.add(expanded);
+        updateMax(maxExpansions, expanded);
+        updateMax(maxFrontier, frontier);
+        if (length > 0) {
+            found.increment();
+            pathLength.add(length);
+            updateMax(maxPathLength, length);
+        }
+    }
+
+    @Override
+    public double getMeanExpansions() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) expansions.sum() / n;
+    }
+
+    @Override
+    public long getMaxExpansions() {
+        return maxExpansions.get();
+    }
+
+    @Override
+    public long getMaxFrontier() {
+        return maxFrontier.get();
+    }
+
+    @Override
+    public double getMeanPathLength() {
+        long n = found.sum();
+        return n == 0 ? 0 : (double) pathLength.sum() / n;
+    }
+
+    @Override
+    public long getMaxPathLength() {
+        return maxPathLength.get();
+    }
+
+    @Override
+    public long getNoPathCount() {
+        return getCount() - found.sum();
+    }
+
+    @Override
+    public long getDeadlineHits() {
+        return deadlineHits.sum();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        expansions.reset();
+        maxExpansions.set(0);
+        maxFrontier.set(0);
+        pathLength.reset();
+        found.reset();
+        maxPathLength.set(0);
+        deadlineHits.reset();
+    }
+}
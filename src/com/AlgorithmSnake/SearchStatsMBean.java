@@ -0,0 +1,12 @@
+package com.AlgorithmSnake;
+
+// jmx view of the searches of one algorithm, times are in microseconds
+public interface SearchStatsMBean extends LatencyStatsMBean {
+    double getMeanExpansions();
+    long getMaxExpansions();
+    long getMaxFrontier();
+    double getMeanPathLength();
+    long getMaxPathLength();
+    long getNoPathCount();
+    long getDeadlineHits();
+}
@@ -0,0 +1,148 @@
+package com.AlgorithmSnake;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// runs a game on its own thread at a fixed timestep so neither painting nor input handling on
+// the swing thread can slow it down, and a slow search never blocks the swing thread.
+// tick n is due at start + n * step on an absolute clock, a late tick is caught up by running the
+// next ones back to back instead of pushing every later tick back, and after falling more than
+// MAX_CATCH_UP steps behind the schedule starts over from now. a step of 0 runs unthrottled.
+// player turns arrive through a lock free queue and are applied right before the next tick.
+// finished frames leave through a triple buffer: the simulation draws into its back frame and
+// swaps it with the ready one, the renderer swaps its front frame with the ready one whenever
+// that is newer. nobody waits, and the renderer always holds the latest complete frame.
+class Simulation {
+    private static final int MAX_CATCH_UP = 5;
+    private static final int FRESH = 4; // set on the ready index when the renderer has not taken it yet
+    private final GameEngine engine;
+    private final long stepNanos;
+    private final Runnable onFrame;
+    private final Queue<Boolean> turns = new ConcurrentLinkedQueue<>();
+    private final Frame[] frames; // null when headless
+    private final AtomicInteger ready = new AtomicInteger(1);
+    private int back = 2; // owned by the simulation thread
+    private int front = 0; // owned by the renderer
+    private final Thread thread;
+    private volatile boolean stopped = false;
+    int maxTicks = Integer.MAX_VALUE; // the thread stops once the engine got this far, set before start
+
+    // one finished tick as the renderer sees it, scores are summed per algorithm over every snake
+    // that took part, dead ones included
+    static final class Frame {
+        final BoardImage board;
+        int tick;
+        boolean over;
+        String winner; // null for a draw or while the game runs
+        final int[] scores = new int[PathAlgorithm.values().length]; // by ordinal
+        int playerScore;
+
+        Frame(BoardImage board) {
+            this.board = board;
+        }
+    }
+
+    // headless, no frames are drawn
+    Simulation(GameEngine engine, long stepNanos) {
+        this(engine, stepNanos, 0, null);
+    }
+
+    // block is the cells per pixel of the board images, 0 runs headless
+    Simulation(GameEngine engine, long stepNanos, int block, Runnable onFrame) {
+        this.engine = engine;
+        this.stepNanos = stepNanos;
+        this.onFrame = onFrame;
+        if (block > 0) {
+            frames = new Frame[3];
+            for (int i = 0; i < frames.length; i++) {
+                frames[i] = new Frame(new BoardImage(engine, block));
+                fill(frames[i]);
+            }
+        } else {
+            frames = null;
+        }
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    // the thread finishes its current tick and exits, the engine is left as it is
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    void join() throws InterruptedException {
+        thread.join();
+    }
+
+    // safe from any thread, the turn is applied before the next tick
+    void turnPlayer(boolean right) {
+        turns.offer(right);
+    }
+
+    // renderer side, the newest published frame. it stays valid until the next call
+    Frame latestFrame() {
+        if ((ready.get() & FRESH) != 0) {
+            front = ready.getAndSet(front) & ~FRESH;
+        }
+        return frames[front];
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        while (!stopped && !engine.isOver() && engine.getTicks() < maxTicks) {
+            if (stepNanos > 0) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    continue; // parking can end early, look at the clock again
+                }
+                if (-wait > MAX_CATCH_UP * stepNanos) {
+                    next = System.nanoTime();
+                }
+                next += stepNanos;
+            }
+            Boolean right;
+            while ((right = turns.poll()) != null) {
+                engine.turnPlayer(right);
+            }
+            engine.tick();
+            if (frames != null) {
+                publish();
+            }
+        }
+    }
+
+    private void publish() {
+        Frame frame = frames[back];
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        frame.board.update();
+        if (Metrics.ENABLED) {
+            Metrics.FRAME_UPDATE.record(System.nanoTime() - start);
+        }
+        fill(frame);
+        back = ready.getAndSet(back | FRESH) & ~FRESH;
+        onFrame.run();
+    }
+
+    private void fill(Frame frame) {
+        frame.tick = engine.getTicks();
+        frame.over = engine.isOver();
+        Snake winner = engine.getWinner();
+        frame.winner = winner == null ? null : winner.algorithm == null ? "PLAYER" : winner.algorithm.name();
+        Arrays.fill(frame.scores, 0);
+        for (Snake snake : engine.roster) {
+            if (snake.algorithm == null) {
+                frame.playerScore = snake.score;
+            } else {
+                frame.scores[snake.algorithm.ordinal()] += snake.score;
+            }
+        }
+    }
+}
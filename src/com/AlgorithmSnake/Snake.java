@@ -0,0 +1,107 @@
+package com.AlgorithmSnake;
+
+// class for a single snake. the body is a ring buffer of occupancy cell indices, head first,
+// so a step pushes one int at the head and pops one at the tail without shifting or allocating.
+// every cell the body takes or gives up is reported to the listener, normally the occupancy grid.
+class Snake {
+    // told about cells a body enters at the head and leaves at the tail, in the order it happens
+    interface BodyListener {
+        void headEntered(Snake snake, int cell);
+        void tailLeft(Snake snake, int cell);
+    }
+
+    final int id;
+    int direction; // cell offset of one step: 1, -1, +stride or -stride
+    PathAlgorithm algorithm;
+    boolean optimal;
+    int score = 0;
+    int diedAt = -1; // tick the snake was taken out, -1 while alive
+    private final int stride;
+    private final BodyListener listener;
+    private int[] cells = new int[16]; // capacity is a power of two so indices wrap with a mask
+    private int head = 0; // ring index of the head
+    private int length = 0;
+
+    // snakes 3 units long from start
+    public Snake(int id, int start, PathAlgorithm algorithm, boolean optimal, Occupancy occupancy) {
+        this(id, new int[]{start, start - 1, start - 2}, 3, algorithm, optimal, occupancy);
+    }
+
+    // snake with the given body, head first, e.g. restored from a replay keyframe
+    Snake(int id, int[] body, int length, PathAlgorithm algorithm, boolean optimal, Occupancy occupancy) {
+        this.id = id;
+        this.algorithm = algorithm;
+        this.optimal = optimal;
+        this.stride = occupancy.stride;
+        this.listener = occupancy;
+        direction = 1;
+
+        while (cells.length < length) {
+            cells = new int[cells.length * 2];
+        }
+        for (int i = 0; i < length; i++) {
+            cells[this.length++] = body[i];
+            listener.headEntered(this, body[i]);
+        }
+    }
+    public int length() {
+        return length;
+    }
+    // i-th body cell counted from the head
+    public int cellAt(int i) {
+        return cells[(head + i) & (cells.length - 1)];
+    }
+    public int getHeadCell() {
+        return cells[head];
+    }
+    public int getTailCell() {
+        return cellAt(length - 1);
+    }
+    // a freshly grown tail is doubled up and will not move on the next step
+    public boolean isTailStacked() {
+        return length > 1 && cellAt(length - 1) == cellAt(length - 2);
+    }
+    public void setDirection(int nextCell) {
+        direction = nextCell - getHeadCell();
+    }
+    // quarter turn, right is clockwise on screen where y grows downwards
+    public void turn(boolean right) {
+        int dx = direction == 1 ? 1 : direction == -1 ? -1 : 0;
+        int dy = direction == stride ? 1 : direction == -stride ? -1 : 0;
+        direction = right ? dx * stride - dy : dy - dx * stride;
+    }
+    public void move() {
+        int newHead = getHeadCell() + direction;
+        // free the tail before taking the head cell, the head may step onto the old tail
+        // the old tail slot is dropped, on a full ring it is the one the new head overwrites
+        if (!isTailStacked()) {
+            listener.tailLeft(this, getTailCell());
+        }
+        head = (head - 1) & (cells.length - 1);
+        cells[head] = newHead;
+        listener.headEntered(this, newHead);
+    }
+    public void eatEatable(){
+        grow();
+        score++;
+    }
+    public void grow() {
+        if (length == cells.length) {
+            // unwrap into a bigger ring so the head is back at index 0
+            int[] grown = new int[cells.length * 2];
+            System.arraycopy(cells, head, grown, 0, cells.length - head);
+            System.arraycopy(cells, 0, grown, cells.length - head, head);
+            cells = grown;
+            head = 0;
+        }
+        cells[(head + length) & (cells.length - 1)] = getTailCell(); // Add at tail
+        length++;
+    }
+    // gives the body cells back to the board when the snake is taken out of the game,
+    // a stacked tail is reported twice so listeners have to ignore cells they already freed
+    public void release() {
+        for (int i = 0; i < length; i++) {
+            listener.tailLeft(this, cellAt(i));
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.AlgorithmSnake;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// runs many independent headless games on a thread pool and aggregates them per algorithm.
+// every game gets its own seed derived from the tournament seed and its index, so the report
+// is the same no matter how many threads ran it or in which order the games finished.
+class Tournament {
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+    private final List<PathAlgorithm> lineup;
+    private final int games;
+    private final long seed;
+    private final int threads;
+    private final int maxTicks;
+    boolean sharedField = false;
+    boolean parallelPlanning = false;
+    int boardSize = GameEngine.DEFAULT_SIZE;
+    int foodCount = 1;
+    int lookaheadRollouts = 512;
+    boolean parallelRollouts = false; // games already run on their own threads, mostly for a single game
+    long tickBudgetNanos = 0; // 0 searches without a deadline, anything else makes games timing dependent
+    final LongAdder deadlineHits = new LongAdder();
+    Path replayDir; // one replay file per game when set
+
+    Tournament(List<PathAlgorithm> lineup, int games, long seed, int threads, int maxTicks) {
+        this.lineup = lineup;
+        this.games = games;
+        this.seed = seed;
+        this.threads = threads;
+        this.maxTicks = maxTicks;
+    }
+
+    // outcome of one game, scores and survival are in lineup order
+    static final class GameResult {
+        final int index;
+        final long seed;
+        final int ticks;
+        final PathAlgorithm winner; // null for a draw or when the tick limit was hit
+        final int[] scores;
+        final int[] survived;
+
+        GameResult(int index, long seed, int ticks, PathAlgorithm winner, int[] scores, int[] survived) {
+            this.index = index;
+            this.seed = seed;
+            this.ticks = ticks;
+            this.winner = winner;
+            this.scores = scores;
+            this.survived = survived;
+        }
+    }
+
+    long gameSeed(int index) {
+        return seed + index * SEED_STEP;
+    }
+
+    // plays a single game, also usable on its own to reproduce one game of a report
+    GameResult play(int index) {
+        long gameSeed = gameSeed(index);
+        // the tick order is a real advantage, so every game shuffles who moves first
+        List<PathAlgorithm> order = new ArrayList<>(lineup);
+        Collections.shuffle(order, new Random(gameSeed));
+        GameEngine engine = GameEngine.seeded(gameSeed, order, boardSize, boardSize);
+        engine.sharedField = sharedField;
+        engine.parallelPlanning = parallelPlanning;
+        engine.tickBudgetNanos = tickBudgetNanos;
+        engine.foodCount = foodCount;
+        engine.spawnFood();
+        engine.lookaheadRollouts = lookaheadRollouts;
+        engine.parallelRollouts = parallelRollouts;
+        int ticks;
+        if (replayDir == null) {
+            ticks = engine.run(maxTicks);
+        } else {
+            try (ReplayWriter replay = new ReplayWriter(replayDir.resolve("game-" + index + ".replay"))) {
+                engine.record(replay);
+                ticks = engine.run(maxTicks);
+            } catch (IOException e) {
+                throw new UncheckedIOException("recording game " + index + " failed", e);
+            }
+        }
+
+        deadlineHits.add(engine.deadlineHits.sum());
+        int[] scores = new int[lineup.size()];
+        int[] survived = new int[lineup.size()];
+        boolean[] taken = new boolean[lineup.size()];
+        for (Snake snake : engine.roster) {
+            int slot = slotOf(snake.algorithm, taken);
+            scores[slot] = snake.score;
+            survived[slot] = snake.diedAt < 0 ? ticks : snake.diedAt;
+        }
+        Snake winner = engine.getWinner();
+        return new GameResult(index, gameSeed, ticks, winner == null ? null : winner.algorithm, scores, survived);
+    }
+
+    // maps a snake back to its lineup entry, repeated algorithms fill their slots in order
+    private int slotOf(PathAlgorithm algorithm, boolean[] taken) {
+        for (int i = 0; i < lineup.size(); i++) {
+            if (!taken[i] && lineup.get(i) == algorithm) {
+                taken[i] = true;
+                return i;
+            }
+        }
+        throw new IllegalStateException("snake " + algorithm + " is not in the lineup");
+    }
+
+    public List<GameResult> run() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<GameResult>> tasks = new ArrayList<>(games);
+            for (int i = 0; i < games; i++) {
+                final int index = i;
+                tasks.add(() -> play(index));
+            }
+            List<GameResult> results = new ArrayList<>(games);
+            for (Future<GameResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("game failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public String report(List<GameResult> results) {
+        StringBuilder sb = new StringBuilder();
+        Map<PathAlgorithm, Integer> wins = new EnumMap<>(PathAlgorithm.class);
+        long totalTicks = 0;
+        int draws = 0;
+        int timeouts = 0;
+        for (GameResult result : results) {
+            totalTicks += result.ticks;
+            if (result.winner != null) {
+                wins.merge(result.winner, 1, Integer::sum);
+            } else if (result.ticks >= maxTicks) {
+                timeouts++;
+            } else {
+                draws++;
+            }
+        }
+
+        sb.append(String.format("%d games on %dx%d, lineup %s, seed %d%n", results.size(), boardSize, boardSize, describeLineup(), seed));
+        sb.append(String.format("average game length %.1f ticks, %d draws, %d hit the %d tick limit%n",
+                results.isEmpty() ? 0.0 : (double) totalTicks / results.size(), draws, timeouts, maxTicks));
+        sb.append(String.format("%-10s %7s %8s %8s %8s %6s %6s %6s %6s %10s%n",
+                "algorithm", "wins", "win %", "mean", "stddev", "min", "median", "p90", "max", "survival"));
+        List<PathAlgorithm> seen = new ArrayList<>();
+        for (PathAlgorithm algorithm : lineup) {
+            if (seen.contains(algorithm)) continue;
+            seen.add(algorithm);
+            List<Integer> scores = new ArrayList<>();
+            long survival = 0;
+            for (GameResult result : results) {
+                for (int i = 0; i < lineup.size(); i++) {
+                    if (lineup.get(i) == algorithm) {
+                        scores.add(result.scores[i]);
+                        survival += result.survived[i];
+                    }
+                }
+            }
+            int[] sorted = scores.stream().mapToInt(Integer::intValue).sorted().toArray();
+            double mean = Arrays.stream(sorted).average().orElse(0);
+            double variance = Arrays.stream(sorted).mapToDouble(v -> (v - mean) * (v - mean)).average().orElse(0);
+            int won = wins.getOrDefault(algorithm, 0);
+            sb.append(String.format("%-10s %7d %7.1f%% %8.2f %8.2f %6d %6d %6d %6d %10.1f%n",
+                    algorithm, won, results.isEmpty() ? 0.0 : 100.0 * won / results.size(), mean, Math.sqrt(variance),
+                    percentile(sorted, 0), percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 100),
+                    sorted.length == 0 ? 0.0 : (double) survival / sorted.length));
+        }
+        return sb.toString();
+    }
+
+    private static int percentile(int[] sorted, int p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    // one row per game so the raw numbers can go into a spreadsheet or a plotting script
+    public void exportCsv(List<GameResult> results, Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            StringBuilder header = new StringBuilder("game,seed,ticks,winner");
+            for (int i = 0; i < lineup.size(); i++) {
+                header.append(',').append(lineup.get(i)).append("_score,").append(lineup.get(i)).append("_survived");
+            }
+            out.println(header);
+            for (GameResult result : results) {
+                StringBuilder row = new StringBuilder();
+                row.append(result.index).append(',').append(result.seed).append(',').append(result.ticks).append(',')
+                        .append(result.winner == null ? "" : result.winner.name());
+                for (int i = 0; i < lineup.size(); i++) {
+                    row.append(',').append(result.scores[i]).append(',').append(result.survived[i]);
+                }
+                out.println(row);
+            }
+        }
+    }
+
+    // lineup with runs of the same algorithm folded, ASTAR x50 instead of fifty entries
+    private String describeLineup() {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < lineup.size(); ) {
+            int run = 1;
+            while (i + run < lineup.size() && lineup.get(i + run) == lineup.get(i)) {
+                run++;
+            }
+            joiner.add(run == 1 ? lineup.get(i).toString() : lineup.get(i) + " x" + run);
+            i += run;
+        }
+        return joiner.toString();
+    }
+
+    // usage: Tournament [--shared] [--parallel] [--size n] [--each n] [--food n] [--rollouts n] [--parallel-rollouts]
+    //                   [--budget micros] [--record dir] [games] [seed] [threads] [csv file] [algorithms...]
+    // --each puts n snakes of every algorithm in the lineup into each game, --food keeps n eatables on the board,
+    // --rollouts sets the playouts per move of lookahead snakes
+    public static void main(String[] args) throws Exception {
+        boolean shared = false;
+        boolean parallel = false;
+        int size = GameEngine.DEFAULT_SIZE;
+        int each = 1;
+        int food = 1;
+        int rollouts = 512;
+        boolean parallelRollouts = false;
+        long budget = 0;
+        Path record = null;
+        while (args.length > 0 && args[0].startsWith("--")) {
+            if (args[0].equals("--shared")) {
+                shared = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--parallel")) {
+                parallel = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--size") && args.length > 1) {
+                size = Integer.parseInt(args[1]);
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args[0].equals("--each") && args.length > 1) {
+                each = Integer.parseInt(args[1]);
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args[0].equals("--food") && args.length > 1) {
+                food = Integer.parseInt(args[1]);
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args[0].equals("--rollouts") && args.length > 1) {
+                rollouts = Integer.parseInt(args[1]);
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args[0].equals("--parallel-rollouts")) {
+                parallelRollouts = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else if (args[0].equals("--budget") && args.length > 1) {
+                budget = Long.parseLong(args[1]) * 1000;
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args[0].equals("--record") && args.length > 1) {
+                record = Files.createDirectories(Paths.get(args[1]));
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else {
+                throw new IllegalArgumentException("unknown option " + args[0]);
+            }
+        }
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        String csv = args.length > 3 ? args[3] : null;
+        List<PathAlgorithm> lineup = new ArrayList<>();
+        for (int i = 4; i < args.length; i++) {
+            lineup.add(PathAlgorithm.valueOf(args[i].toUpperCase()));
+        }
+        if (lineup.isEmpty()) {
+            lineup.addAll(Arrays.asList(PathAlgorithm.values()));
+        }
+        List<PathAlgorithm> repeated = new ArrayList<>();
+        for (PathAlgorithm algorithm : lineup) {
+            repeated.addAll(Collections.nCopies(each, algorithm));
+        }
+        lineup = repeated;
+
+        Tournament tournament = new Tournament(lineup, games, seed, threads, 100_000);
+        tournament.sharedField = shared;
+        tournament.parallelPlanning = parallel;
+        tournament.boardSize = size;
+        tournament.foodCount = food;
+        tournament.lookaheadRollouts = rollouts;
+        tournament.parallelRollouts = parallelRollouts;
+        tournament.tickBudgetNanos = budget;
+        tournament.replayDir = record;
+        long start = System.nanoTime();
+        List<GameResult> results = tournament.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(tournament.report(results));
+        System.out.printf("%.1f s on %d threads, %.1f games/s%n", seconds, threads, games / seconds);
+        if (budget > 0) {
+            System.out.printf("%d searches ran out of their %d us budget%n", tournament.deadlineHits.sum(), budget / 1000);
+        }
+        if (Metrics.ENABLED) {
+            System.out.print(Metrics.report());
+        }
+        if (csv != null && !csv.isEmpty()) {
+            tournament.exportCsv(results, Paths.get(csv));
+        }
+    }
+}